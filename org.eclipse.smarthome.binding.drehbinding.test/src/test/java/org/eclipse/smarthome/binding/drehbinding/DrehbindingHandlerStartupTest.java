@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.handler.DrehbindingHandler;
+import org.eclipse.smarthome.binding.drehbinding.handler.RemoteDeviceDispatcher;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTIOServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTServiceImpl;
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingStatusInfo;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
+import org.eclipse.smarthome.test.java.JavaTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jupnp.model.types.UDN;
+import org.jupnp.registry.Registry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Startup of 100 simulated things whose devices aren't discovered yet. The jUPnP registry blocks every lookup until
+ * the test releases it: initialize must return anyway, and the lookups must run on all init threads at once. The
+ * startup time is logged.
+ *
+ * The things have no address, so their subscriptions end without any network I/O. The services are reset afterwards
+ * like on a binding stop.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class DrehbindingHandlerStartupTest extends JavaTest {
+
+    private final Logger logger = LoggerFactory.getLogger(DrehbindingHandlerStartupTest.class);
+
+    private static final int THINGS = 100;
+    private static final int INIT_THREADS = 4;
+
+    private final List<DrehbindingHandler> handlers = new ArrayList<>();
+
+    // Things, die nicht mehr UNKNOWN sind
+    private final Set<Thing> initialized = ConcurrentHashMap.newKeySet();
+
+    private final CountDownLatch registryBlocked = new CountDownLatch(1);
+    private final AtomicInteger blockedLookups = new AtomicInteger();
+
+    private Registry registry;
+
+    @Before
+    public void setUp() {
+        registry = mock(Registry.class);
+        when(registry.getRemoteDevice(any(UDN.class), anyBoolean())).thenAnswer(invocation -> {
+            blockedLookups.incrementAndGet();
+            try {
+                registryBlocked.await();
+            } finally {
+                blockedLookups.decrementAndGet();
+            }
+            return null;
+        });
+        RemoteDeviceDispatcher.getInstance().start(registry, INIT_THREADS);
+
+        ThingHandlerCallback callback = mock(ThingHandlerCallback.class);
+        doAnswer(invocation -> {
+            ThingStatusInfo info = invocation.getArgument(1);
+            if (info.getStatus() != ThingStatus.UNKNOWN) {
+                initialized.add(invocation.getArgument(0));
+            }
+            return null;
+        }).when(callback).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        for (int i = 0; i < THINGS; i++) {
+            DrehbindingHandler handler = new DrehbindingHandler(mockThing(i));
+            handler.setCallback(callback);
+            handlers.add(handler);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        registryBlocked.countDown();
+        for (DrehbindingHandler handler : handlers) {
+            handler.dispose();
+        }
+        RemoteDeviceDispatcher.getInstance().stop();
+        SubscriptionServiceImpl.reset();
+        RESTIOServiceImpl.reset();
+        RESTServiceImpl.reset();
+    }
+
+    @Test
+    public void initializeDoesNotWaitForTheRegistry() {
+        long start = System.nanoTime();
+        for (DrehbindingHandler handler : handlers) {
+            handler.initialize();
+        }
+
+        // Alle initialize sind zurück, obwohl noch keine einzige Abfrage der Registry fertig ist
+        waitForAssert(() -> assertEquals(INIT_THREADS, blockedLookups.get()));
+        assertTrue(initialized.isEmpty());
+
+        registryBlocked.countDown();
+        waitForAssert(() -> assertEquals(THINGS, initialized.size()));
+        logger.info("{} things left UNKNOWN after {} ms", THINGS, (System.nanoTime() - start) / 1000000);
+
+        verify(registry, times(THINGS)).getRemoteDevice(any(UDN.class), anyBoolean());
+    }
+
+    @Test
+    public void stopCompletesPendingLookups() {
+        for (DrehbindingHandler handler : handlers) {
+            handler.initialize();
+        }
+        waitForAssert(() -> assertEquals(INIT_THREADS, blockedLookups.get()));
+
+        // Die Registry antwortet nie, trotzdem darf kein Thing UNKNOWN bleiben
+        RemoteDeviceDispatcher.getInstance().stop();
+        waitForAssert(() -> assertEquals(THINGS, initialized.size()));
+    }
+
+    private Thing mockThing(int index) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(UDN, "uuid:startup-" + index);
+
+        Thing thing = mock(Thing.class);
+        when(thing.getProperties()).thenReturn(properties);
+        when(thing.getConfiguration()).thenReturn(new Configuration());
+        return thing;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Test cases for {@link CallbackFrameParser}, including a comparison of the garbage created per event with the
+ * String based parsing the callback listener used before. The comparison needs a JVM that counts the bytes allocated
+ * per thread and is skipped otherwise.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class CallbackFrameParserTest {
+
+    private final Logger logger = LoggerFactory.getLogger(CallbackFrameParserTest.class);
+
+    private static final byte[] EVENT = "topic:newMotionEvent;name:Geste 3;identifier:uuid:1234;x:1;y:2;\r"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 100000;
+
+    private final CallbackFrame frame = new CallbackFrame();
+
+    @Test
+    public void parsesTopicAndFields() {
+        assertTrue(CallbackFrameParser.parse(EVENT, 0, EVENT.length, frame));
+
+        assertSame(TOPIC_NEW_MOTION, frame.getTopic());
+        assertEquals(4, frame.size());
+        assertSame(NAME, frame.getKey(0));
+        assertEquals("Geste 3", frame.get(NAME));
+        assertEquals("uuid:1234", frame.get(IDENTIFIER));
+        assertEquals("2", frame.get("y"));
+        assertNull(frame.get("z"));
+    }
+
+    @Test
+    public void parsesFrameWithoutFields() {
+        byte[] keepalive = "topic:keepalive;".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(CallbackFrameParser.parse(keepalive, 0, keepalive.length, frame));
+        assertSame(TOPIC_KEEPALIVE, frame.getTopic());
+        assertEquals(0, frame.size());
+    }
+
+    @Test
+    public void rejectsMalformedFrames() {
+        String[] malformed = { "", "topic:", "topic:newMotionEvent", "topic:;name:x;", "name:x;topic:y;",
+                "topic:newMotionEvent;name:Geste 3", "topic:newMotionEvent;name;", "topic:newMotionEvent;:x;" };
+
+        for (String text : malformed) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            assertFalse(text, CallbackFrameParser.parse(bytes, 0, bytes.length, frame));
+        }
+    }
+
+    @Test
+    public void rejectsTooManyFields() {
+        StringBuilder text = new StringBuilder("topic:newMotionEvent;");
+        for (int i = 0; i <= CallbackFrame.MAX_FIELDS; i++) {
+            text.append("k").append(i).append(":v;");
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(CallbackFrameParser.parse(bytes, 0, bytes.length, frame));
+    }
+
+    @Test
+    public void createsLessGarbageThanStringParsing() throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Method allocatedBytes = allocatedBytesOf(threadBean);
+        assumeTrue("Allocated bytes per thread aren't available", allocatedBytes != null);
+        Long threadId = Thread.currentThread().getId();
+        String line = new String(EVENT, 0, EVENT.length - 1, StandardCharsets.UTF_8);
+
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += legacyParse(line).size();
+            CallbackFrameParser.parse(EVENT, 0, EVENT.length, frame);
+            sink += frame.size();
+        }
+
+        long before = (Long) allocatedBytes.invoke(threadBean, threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += legacyParse(line).size();
+        }
+        long legacyBytes = ((Long) allocatedBytes.invoke(threadBean, threadId) - before) / ITERATIONS;
+
+        before = (Long) allocatedBytes.invoke(threadBean, threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            CallbackFrameParser.parse(EVENT, 0, EVENT.length, frame);
+            sink += frame.size();
+        }
+        long parserBytes = ((Long) allocatedBytes.invoke(threadBean, threadId) - before) / ITERATIONS;
+
+        logger.info("Garbage per event: String parsing {} bytes, CallbackFrameParser {} bytes ({})", legacyBytes,
+                parserBytes, sink);
+
+        // Großzügig, JIT und TLABs verschieben die Werte etwas
+        assertTrue("Parser allocated " + parserBytes + " of " + legacyBytes + " bytes per event",
+                parserBytes * 4 < legacyBytes);
+    }
+
+    /**
+     * The counter is an extension of the HotSpot JVMs, not every JVM has it
+     *
+     * @return getThreadAllocatedBytes(long), null if the JVM doesn't count the allocated bytes
+     */
+    private static Method allocatedBytesOf(ThreadMXBean threadBean) {
+        try {
+            Class<?> extension = ClassLoader.getSystemClassLoader().loadClass("com.sun.management.ThreadMXBean");
+            if (!extension.isInstance(threadBean)
+                    || !(Boolean) extension.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadBean)) {
+                return null;
+            }
+            return extension.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The parsing done by the callback listener before the {@link CallbackFrameParser} existed
+     */
+    private static Map<String, String> legacyParse(String crypticText) {
+        Map<String, String> values = new HashMap<>();
+        values.put("topic", crypticText.substring("topic:".length(), crypticText.indexOf(";")));
+        crypticText = crypticText.substring(crypticText.indexOf(";") + 1, crypticText.length());
+
+        while (crypticText.length() > 0) {
+            String param = crypticText.substring(0, crypticText.indexOf(":"));
+            String value = crypticText.substring(crypticText.indexOf(":") + 1, crypticText.indexOf(";"));
+
+            values.put(param, value);
+
+            crypticText = crypticText.substring(crypticText.indexOf(";") + 1, crypticText.length());
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link EventRingBuffer}
+ *
+ * @author Tristan - Initial contribution
+ */
+public class EventRingBufferTest {
+
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        publisher.shutdownNow();
+    }
+
+    @Test
+    public void shutdownReleasesBlockedPublisher() throws Exception {
+        EventRingBuffer buffer = new EventRingBuffer(1, OverflowPolicy.BLOCK);
+        assertTrue(buffer.publish(event("uuid:a", "Geste 1")));
+
+        Future<Boolean> blocked = publisher.submit(() -> buffer.publish(event("uuid:a", "Geste 2")));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        buffer.shutdown();
+
+        assertFalse(blocked.get(5, TimeUnit.SECONDS));
+        assertFalse(buffer.publish(event("uuid:a", "Geste 3")));
+        assertEquals(1, buffer.getPublished());
+    }
+
+    @Test
+    public void queuedEventsCanBeTakenAfterShutdown() throws Exception {
+        EventRingBuffer buffer = new EventRingBuffer(2, OverflowPolicy.BLOCK);
+        buffer.publish(event("uuid:a", "Geste 1"));
+        buffer.shutdown();
+
+        CallbackFrame taken = new CallbackFrame();
+        assertTrue(buffer.take(taken, 0));
+        assertEquals("Geste 1", taken.get(NAME));
+        // Kein Warten mehr, wenn der Buffer leer ist
+        assertFalse(buffer.take(taken, 5000));
+    }
+
+    @Test
+    public void coalescedEventKeepsThePositionOfTheReplacedOne() throws Exception {
+        EventRingBuffer buffer = new EventRingBuffer(2, OverflowPolicy.COALESCE_PER_DEVICE);
+        buffer.publish(event("uuid:a", "Geste 1"));
+        buffer.publish(event("uuid:b", "Geste 2"));
+        buffer.publish(event("uuid:a", "Geste 3"));
+
+        CallbackFrame taken = new CallbackFrame();
+        assertTrue(buffer.take(taken, 0));
+        assertEquals("Geste 3", taken.get(NAME));
+        assertTrue(buffer.take(taken, 0));
+        assertEquals("uuid:b", taken.get(IDENTIFIER));
+        assertEquals(1, buffer.getCoalesced());
+    }
+
+    private static CallbackFrame event(String identifier, String name) {
+        byte[] bytes = ("topic:newMotionEvent;name:" + name + ";identifier:" + identifier + ";")
+                .getBytes(StandardCharsets.UTF_8);
+        CallbackFrame frame = new CallbackFrame();
+        assertTrue(CallbackFrameParser.parse(bytes, 0, bytes.length, frame));
+        return frame;
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.TOPIC_NEW_MOTION;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link InFlightSubscriptions}. Threads subscribe the topics of one device the way
+ * remoteDeviceAdded (all static topics) and remoteDeviceUpdated (the missing topic) do when both fire at once.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class InFlightSubscriptionsTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 500;
+    private static final String TOPIC_OTHER = "other";
+    private static final long BOOTID = 42;
+
+    private final InFlightSubscriptions inFlight = new InFlightSubscriptions();
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final ExecutorService device = Executors.newFixedThreadPool(4);
+
+    private final TestSubscriber subscriber = new TestSubscriber("uuid:1");
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        device.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        ConcurrentMap<String, AtomicInteger> sent = new ConcurrentHashMap<>();
+        CompletableFuture<Void> answer = new CompletableFuture<>();
+        Function<List<String>, CompletableFuture<Map<String, Boolean>>> request = topics -> {
+            for (String topic : topics) {
+                sent.computeIfAbsent(topic, t -> new AtomicInteger()).incrementAndGet();
+            }
+            return answer.thenApply(v -> accepted(topics));
+        };
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CompletableFuture<Map<String, Boolean>>>> callers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Collection<String> topics = t % 2 == 0 ? Arrays.asList(TOPIC_NEW_MOTION, TOPIC_OTHER)
+                    : Collections.singletonList(TOPIC_NEW_MOTION);
+            callers.add(executor.submit(() -> {
+                start.await();
+                return inFlight.subscribe(subscriber, topics, BOOTID, request);
+            }));
+        }
+        start.countDown();
+
+        List<CompletableFuture<Map<String, Boolean>>> results = new ArrayList<>();
+        for (Future<CompletableFuture<Map<String, Boolean>>> caller : callers) {
+            results.add(caller.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, inFlight.getInFlight());
+
+        answer.complete(null);
+        for (CompletableFuture<Map<String, Boolean>> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS).get(TOPIC_NEW_MOTION));
+        }
+
+        assertEquals(1, sent.get(TOPIC_NEW_MOTION).get());
+        assertEquals(1, sent.get(TOPIC_OTHER).get());
+        assertEquals(0, inFlight.getInFlight());
+        assertEquals(THREADS + THREADS / 2 - 2, inFlight.getJoined());
+    }
+
+    @Test
+    public void completedRequestsAreNotCached() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        Function<List<String>, CompletableFuture<Map<String, Boolean>>> request = topics -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(accepted(topics));
+        };
+
+        inFlight.subscribe(subscriber, Collections.singletonList(TOPIC_NEW_MOTION), BOOTID, request).get();
+        inFlight.subscribe(subscriber, Collections.singletonList(TOPIC_NEW_MOTION), BOOTID, request).get();
+
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void otherBootidOrDeviceSendsOwnRequest() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<Void> answer = new CompletableFuture<>();
+        Function<List<String>, CompletableFuture<Map<String, Boolean>>> request = topics -> {
+            sent.incrementAndGet();
+            return answer.thenApply(v -> accepted(topics));
+        };
+
+        List<String> topics = Collections.singletonList(TOPIC_NEW_MOTION);
+        inFlight.subscribe(subscriber, topics, BOOTID, request);
+        inFlight.subscribe(subscriber, topics, BOOTID + 1, request);
+        inFlight.subscribe(new TestSubscriber("uuid:2"), topics, BOOTID, request);
+        answer.complete(null);
+
+        assertEquals(3, sent.get());
+    }
+
+    @Test
+    public void failedRequestFailsAllCallers() throws Exception {
+        CompletableFuture<Map<String, Boolean>> answer = new CompletableFuture<>();
+        Function<List<String>, CompletableFuture<Map<String, Boolean>>> request = topics -> answer;
+
+        List<String> topics = Collections.singletonList(TOPIC_NEW_MOTION);
+        CompletableFuture<Map<String, Boolean>> first = inFlight.subscribe(subscriber, topics, BOOTID, request);
+        CompletableFuture<Map<String, Boolean>> second = inFlight.subscribe(subscriber, topics, BOOTID, request);
+        answer.completeExceptionally(new IllegalStateException("device gone"));
+
+        assertFalse(first.get(5, TimeUnit.SECONDS).get(TOPIC_NEW_MOTION));
+        assertFalse(second.get(5, TimeUnit.SECONDS).get(TOPIC_NEW_MOTION));
+        assertEquals(0, inFlight.getInFlight());
+    }
+
+    @Test
+    public void registryCallbacksNeverSendTheSameSubscriptionTwice() throws Exception {
+        ConcurrentMap<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        Function<List<String>, CompletableFuture<Map<String, Boolean>>> request = topics -> {
+            for (String topic : topics) {
+                if (running.computeIfAbsent(topic, t -> new AtomicInteger()).incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                // the device takes a moment to answer
+                if (ThreadLocalRandom.current().nextBoolean()) {
+                    Thread.yield();
+                }
+                for (String topic : topics) {
+                    running.get(topic).decrementAndGet();
+                }
+                return accepted(topics);
+            }, device);
+        };
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> callbacks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean added = t % 2 == 0;
+            callbacks.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    if (added) {
+                        // remoteDeviceAdded
+                        inFlight.subscribe(subscriber, Arrays.asList(TOPIC_NEW_MOTION, TOPIC_OTHER), BOOTID, request)
+                                .get(5, TimeUnit.SECONDS);
+                    } else {
+                        // remoteDeviceUpdated
+                        inFlight.subscribe(subscriber, Collections.singletonList(TOPIC_NEW_MOTION), BOOTID, request)
+                                .get(5, TimeUnit.SECONDS);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> callback : callbacks) {
+            callback.get(60, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, inFlight.getInFlight());
+    }
+
+    private static Map<String, Boolean> accepted(Collection<String> topics) {
+        Map<String, Boolean> accepted = new HashMap<>();
+        for (String topic : topics) {
+            accepted.put(topic, true);
+        }
+        return accepted;
+    }
+
+    private static class TestSubscriber implements Subscriber {
+
+        private final String identifier;
+
+        TestSubscriber(String identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public void onFullSuccessfulSubscription(String topic) {
+        }
+
+        @Override
+        public void onFullSuccessfullUnsubscription(String topic) {
+        }
+
+        @Override
+        public void onSubcriptionEvent(String topic, CallbackFrame values) {
+        }
+
+        @Override
+        public void onPartialSucessfulSubscription(String topic) {
+        }
+
+        @Override
+        public void onPartialSucessfulUnsubscription(String topic) {
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the callback ingestion with several {@link NioCallbackListener} shards on one port. Many knobs send
+ * their events at once over persistent connections, like after a power restore. The events per second for each shard
+ * count are logged, they only scale on a box with more than one core.
+ *
+ * Not part of the default test run, see the benchmark profile in the pom. {@link NioCallbackListenerShardingTest}
+ * checks the distribution.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class NioCallbackListenerShardingBenchmark {
+
+    private final Logger logger = LoggerFactory.getLogger(NioCallbackListenerShardingBenchmark.class);
+
+    private static final int[] SHARD_COUNTS = { 1, 2, 4 };
+    private static final int KNOBS = 16;
+    private static final int EVENTS_PER_KNOB = 20000;
+    private static final long TIMEOUT = 60000;
+
+    @Test
+    public void eventsPerSecondPerShardCount() throws Exception {
+        boolean reusePort = NioCallbackListener.supportsReusePort();
+        if (!reusePort) {
+            logger.info("SO_REUSEPORT is not supported - only measuring a single shard");
+        }
+
+        logger.info("Measuring with {} cores", Runtime.getRuntime().availableProcessors());
+        for (int shards : SHARD_COUNTS) {
+            if (shards > 1 && !reusePort) {
+                break;
+            }
+
+            long eventsPerSecond = measure(shards);
+            logger.info("{} shard(s): {} events/s", shards, eventsPerSecond);
+        }
+    }
+
+    private long measure(int shards) throws Exception {
+        AtomicLong received = new AtomicLong();
+        CallbackFrameHandler counter = frame -> received.incrementAndGet();
+
+        List<NioCallbackListener> listeners = new ArrayList<>();
+        ExecutorService listenerThreads = Executors.newFixedThreadPool(shards);
+        ExecutorService knobThreads = Executors.newFixedThreadPool(KNOBS);
+        try {
+            NioCallbackListener first = new NioCallbackListener(0, 5000, 60000, false, shards > 1, counter);
+            listeners.add(first);
+            for (int i = 1; i < shards; i++) {
+                listeners.add(new NioCallbackListener(first.getLocalPort(), 5000, 60000, false, true, counter));
+            }
+            for (NioCallbackListener listener : listeners) {
+                listenerThreads.execute(listener);
+            }
+
+            int port = first.getLocalPort();
+            long total = (long) KNOBS * EVENTS_PER_KNOB;
+            long start = System.nanoTime();
+
+            List<Future<?>> knobs = new ArrayList<>();
+            for (int i = 0; i < KNOBS; i++) {
+                String identifier = "uuid:knob-" + i;
+                knobs.add(knobThreads.submit(() -> {
+                    sendEvents(port, identifier);
+                    return null;
+                }));
+            }
+            for (Future<?> knob : knobs) {
+                knob.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (received.get() < total && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(total, received.get());
+            return total * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        } finally {
+            for (NioCallbackListener listener : listeners) {
+                listener.shutdown();
+            }
+            knobThreads.shutdownNow();
+            listenerThreads.shutdown();
+            listenerThreads.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void sendEvents(int port, String identifier) throws IOException {
+        byte[] event = ("topic:newMotionEvent;name:Geste 3;identifier:" + identifier + ";\n")
+                .getBytes(StandardCharsets.UTF_8);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            out.write(("topic:hello;identifier:" + identifier + ";\n").getBytes(StandardCharsets.UTF_8));
+
+            // Mehrere Events pro write, wie ein Device, das nach einem Stromausfall alles auf einmal meldet
+            byte[] batch = new byte[event.length * 64];
+            for (int i = 0; i < 64; i++) {
+                System.arraycopy(event, 0, batch, i * event.length, event.length);
+            }
+            for (int sent = 0; sent < EVENTS_PER_KNOB; sent += 64) {
+                int count = Math.min(64, EVENTS_PER_KNOB - sent);
+                out.write(batch, 0, count * event.length);
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.IDENTIFIER;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Several {@link NioCallbackListener} shards on one port. Each shard has its own frame handler, so the test sees
+ * which shard got which knob. The events per second are measured by {@link NioCallbackListenerShardingBenchmark}.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class NioCallbackListenerShardingTest {
+
+    private static final int SHARDS = 4;
+    // Bei 64 Verbindungen bleibt ein Shard nur mit vernachlässigbarer Wahrscheinlichkeit leer
+    private static final int KNOBS = 64;
+    private static final int EVENTS_PER_KNOB = 100;
+    private static final long TIMEOUT = 10000;
+
+    private final List<NioCallbackListener> listeners = new ArrayList<>();
+    private final ExecutorService listenerThreads = Executors.newFixedThreadPool(SHARDS);
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (NioCallbackListener listener : listeners) {
+            listener.shutdown();
+        }
+        listenerThreads.shutdown();
+        listenerThreads.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void everyShardGetsConnectionsAndEveryKnobStaysOnOneShard() throws Exception {
+        assumeTrue("SO_REUSEPORT is not supported", NioCallbackListener.supportsReusePort());
+
+        List<Map<String, AtomicLong>> received = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            Map<String, AtomicLong> events = new ConcurrentHashMap<>();
+            received.add(events);
+            CallbackFrameHandler handler = frame -> events
+                    .computeIfAbsent(frame.get(IDENTIFIER), identifier -> new AtomicLong()).incrementAndGet();
+
+            int port = listeners.isEmpty() ? 0 : listeners.get(0).getLocalPort();
+            NioCallbackListener listener = new NioCallbackListener(port, 5000, 60000, false, true, handler);
+            listeners.add(listener);
+            listenerThreads.execute(listener);
+        }
+
+        int port = listeners.get(0).getLocalPort();
+        for (int i = 0; i < KNOBS; i++) {
+            sendEvents(port, "uuid:knob-" + i);
+        }
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (total(received) < (long) KNOBS * EVENTS_PER_KNOB && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals((long) KNOBS * EVENTS_PER_KNOB, total(received));
+
+        Set<String> knobs = new HashSet<>();
+        for (int i = 0; i < SHARDS; i++) {
+            assertFalse("Shard " + i + " got no connection", received.get(i).isEmpty());
+            for (Map.Entry<String, AtomicLong> knob : received.get(i).entrySet()) {
+                // Alle Events einer Verbindung kommen bei demselben Shard an
+                assertTrue(knob.getKey() + " is on several shards", knobs.add(knob.getKey()));
+                assertEquals(EVENTS_PER_KNOB, knob.getValue().get());
+            }
+        }
+        assertEquals(KNOBS, knobs.size());
+    }
+
+    private static long total(List<Map<String, AtomicLong>> received) {
+        long total = 0;
+        for (Map<String, AtomicLong> events : received) {
+            for (AtomicLong count : events.values()) {
+                total += count.get();
+            }
+        }
+        return total;
+    }
+
+    private static void sendEvents(int port, String identifier) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("topic:hello;identifier:" + identifier + ";\n").getBytes(StandardCharsets.UTF_8));
+            byte[] event = ("topic:newMotionEvent;name:Geste 3;identifier:" + identifier + ";\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < EVENTS_PER_KNOB; i++) {
+                out.write(event);
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link NioCallbackListener}
+ *
+ * @author Tristan - Initial contribution
+ */
+public class NioCallbackListenerTest {
+
+    private static final String KNOB = "uuid:knob";
+    private static final long SUBSCRIBED_BOOTID = 1000;
+    private static final long TIMEOUT = 5000;
+
+    private final ExecutorService listenerThread = Executors.newSingleThreadExecutor();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private NioCallbackListener listener;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (listener != null) {
+            listener.shutdown();
+        }
+        listenerThread.shutdown();
+        listenerThread.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void rejectedFrameDoesNotDisturbTheSequenceOfTheDevice() throws Exception {
+        listener = new NioCallbackListener(0, 5000, 60000, true, false, new CallbackFrameHandler() {
+
+            @Override
+            public boolean accepts(CallbackFrame frame) {
+                // Wie der SubscriptionService: nur Events unserer Subscription
+                return frame.getLong(BOOTID, -1) == SUBSCRIBED_BOOTID;
+            }
+
+            @Override
+            public void onFrame(CallbackFrame frame) {
+                received.add(frame.get(SEQ));
+            }
+        });
+        listenerThread.execute(listener);
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            send(socket, SUBSCRIBED_BOOTID, 1);
+            // Event einer fremden Subscription desselben Devices mit neuerer bootid
+            send(socket, SUBSCRIBED_BOOTID + 1, 7);
+            send(socket, SUBSCRIBED_BOOTID, 2);
+        }
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (received.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("[1, 2]", received.toString());
+        assertEquals(0, listener.getLateDatagrams());
+    }
+
+    private void send(DatagramSocket socket, long bootid, long seq) throws IOException {
+        byte[] event = ("topic:newMotionEvent;name:Geste 3;identifier:" + KNOB + ";bootid:" + bootid + ";seq:" + seq
+                + ";\n").getBytes(StandardCharsets.UTF_8);
+        socket.send(new DatagramPacket(event, event.length, InetAddress.getLoopbackAddress(),
+                listener.getLocalPort()));
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link SubscriptionCoordinator}. The subscriptions complete when the test says so.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class SubscriptionCoordinatorTest {
+
+    private static final long BOOTID = 42;
+    private static final List<String> TOPICS = Arrays.asList("a", "b");
+
+    private SubscriptionService service;
+    private SubscriptionCoordinator coordinator;
+
+    private final Subscriber subscriber = mock(Subscriber.class);
+    private final CompletableFuture<Map<String, Boolean>> remote = new CompletableFuture<>();
+
+    @Before
+    public void setUp() {
+        service = mock(SubscriptionService.class);
+        when(service.subscribeAsync(any(Subscriber.class), anyCollection(), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.emptyMap()));
+        when(service.subscribeAsync(eq(subscriber), anyCollection(), anyLong())).thenReturn(remote)
+                .thenReturn(new CompletableFuture<>());
+        coordinator = new SubscriptionCoordinator(service, 1);
+    }
+
+    @Test
+    public void cancelledRunningJobIsUndoneOnceItCompletes() {
+        CompletableFuture<Map<String, Boolean>> result = coordinator.submit(subscriber, TOPICS, BOOTID, true);
+        assertEquals(1, coordinator.getInFlight());
+
+        coordinator.cancel(subscriber);
+        verify(service, never()).unsubscribeAsync(any(Subscriber.class), anyCollection(), anyLong());
+
+        remote.complete(accepted("a"));
+
+        assertTrue(result.isCancelled());
+        verify(service).unsubscribeAsync(subscriber, Collections.singletonList("a"), BOOTID);
+        verify(service).removeSubscription(subscriber, "b");
+        assertEquals(0, coordinator.getInFlight());
+    }
+
+    @Test
+    public void cancelledRunningJobKeepsTheSubscriptionsOfItsSuccessor() {
+        coordinator.submit(subscriber, TOPICS, BOOTID, true);
+        coordinator.cancel(subscriber);
+        CompletableFuture<Map<String, Boolean>> next = coordinator.submit(subscriber, TOPICS, BOOTID, true);
+        assertTrue(coordinator.isQueued(subscriber));
+
+        remote.complete(accepted("a", "b"));
+
+        verify(service, never()).unsubscribeAsync(any(Subscriber.class), anyCollection(), anyLong());
+        verify(service, never()).removeSubscription(any(Subscriber.class), anyString());
+        assertFalse(next.isDone());
+        assertEquals(1, coordinator.getInFlight());
+        verify(service, times(2)).subscribeAsync(eq(subscriber), anyCollection(), eq(BOOTID));
+    }
+
+    @Test
+    public void jobsCompletingImmediatelyDoNotRecurse() {
+        int jobs = 10000;
+        coordinator.submit(subscriber, TOPICS, BOOTID, true);
+        for (int i = 0; i < jobs; i++) {
+            coordinator.submit(mock(Subscriber.class), TOPICS, BOOTID, true);
+        }
+        assertEquals(jobs, coordinator.getQueued());
+
+        // Jeder weitere Job ist sofort fertig und startet den nächsten
+        remote.complete(accepted("a", "b"));
+
+        assertEquals(0, coordinator.getQueued());
+        assertEquals(jobs + 1, coordinator.getCompleted());
+    }
+
+    private static Map<String, Boolean> accepted(String... topics) {
+        Map<String, Boolean> results = new HashMap<>();
+        for (String topic : TOPICS) {
+            results.put(topic, Arrays.asList(topics).contains(topic));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.TOPIC_NEW_MOTION;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionRegistry.SubscriberSet;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link SubscriptionRegistry}. The stress tests check that a dispatch stuck in a slow subscriber
+ * doesn't hold up registrations and that concurrent registrations don't get lost.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class SubscriptionRegistryTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 2000;
+
+    private final SubscriptionRegistry registry = new SubscriptionRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void indexesByDeviceAndTopic() {
+        TestSubscriber first = new TestSubscriber("uuid:1");
+        TestSubscriber second = new TestSubscriber("uuid:2");
+
+        assertTrue(registry.add(first, TOPIC_NEW_MOTION));
+        assertFalse(registry.add(first, TOPIC_NEW_MOTION));
+        assertTrue(registry.add(second, TOPIC_NEW_MOTION));
+
+        assertSame(first, registry.get("uuid:1", TOPIC_NEW_MOTION));
+        assertSame(second, registry.get("uuid:2", TOPIC_NEW_MOTION));
+        assertEquals(2, registry.getAll(TOPIC_NEW_MOTION).size());
+
+        assertTrue(registry.remove(first, TOPIC_NEW_MOTION));
+        assertFalse(registry.remove(first, TOPIC_NEW_MOTION));
+        assertNull(registry.get("uuid:1", TOPIC_NEW_MOTION));
+        assertFalse(registry.contains(first, TOPIC_NEW_MOTION));
+        assertTrue(registry.getTopics("uuid:1").isEmpty());
+        assertEquals(1, registry.getAll(TOPIC_NEW_MOTION).size());
+    }
+
+    @Test
+    public void registrationDoesNotWaitForSlowDispatch() throws Exception {
+        CountDownLatch dispatching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TestSubscriber slow = new TestSubscriber("uuid:slow") {
+            @Override
+            public void onSubcriptionEvent(String topic, CallbackFrame values) {
+                dispatching.countDown();
+                try {
+                    // simulates an updateState that takes forever
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        registry.add(slow, TOPIC_NEW_MOTION);
+
+        Future<?> dispatch = executor.submit(() -> {
+            SubscriberSet subscribers = registry.getAll(TOPIC_NEW_MOTION);
+            for (int i = 0; i < subscribers.size(); i++) {
+                subscribers.get(i).onSubcriptionEvent(TOPIC_NEW_MOTION, new CallbackFrame());
+            }
+        });
+        assertTrue(dispatching.await(5, TimeUnit.SECONDS));
+
+        List<Future<?>> registrations = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            TestSubscriber subscriber = new TestSubscriber("uuid:" + t);
+            registrations.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS; i++) {
+                    registry.add(subscriber, TOPIC_NEW_MOTION);
+                    assertTrue(registry.contains(subscriber, TOPIC_NEW_MOTION));
+                    registry.remove(subscriber, TOPIC_NEW_MOTION);
+                }
+            }));
+        }
+
+        for (Future<?> registration : registrations) {
+            // would time out if registration had to wait for the dispatch
+            registration.get(10, TimeUnit.SECONDS);
+        }
+        assertFalse(dispatch.isDone());
+
+        release.countDown();
+        dispatch.get(5, TimeUnit.SECONDS);
+        assertSame(slow, registry.get("uuid:slow", TOPIC_NEW_MOTION));
+    }
+
+    @Test
+    public void concurrentRegistrationsAreNotLost() throws Exception {
+        List<Future<?>> registrations = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            registrations.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS; i++) {
+                    TestSubscriber subscriber = new TestSubscriber("uuid:" + thread + ":" + i);
+                    registry.add(subscriber, TOPIC_NEW_MOTION);
+                    registry.add(subscriber, "other");
+                    if (i % 2 == 0) {
+                        registry.remove(subscriber, "other");
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> registration : registrations) {
+            registration.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(THREADS * OPERATIONS, registry.getAll(TOPIC_NEW_MOTION).size());
+        assertEquals(THREADS * OPERATIONS / 2, registry.getAll("other").size());
+        assertEquals(1, registry.getTopics("uuid:0:0").size());
+        assertEquals(2, registry.getTopics("uuid:0:1").size());
+    }
+
+    private static class TestSubscriber implements Subscriber {
+
+        private final String identifier;
+
+        TestSubscriber(String identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public void onFullSuccessfulSubscription(String topic) {
+        }
+
+        @Override
+        public void onFullSuccessfullUnsubscription(String topic) {
+        }
+
+        @Override
+        public void onSubcriptionEvent(String topic, CallbackFrame values) {
+        }
+
+        @Override
+        public void onPartialSucessfulSubscription(String topic) {
+        }
+
+        @Override
+        public void onPartialSucessfulUnsubscription(String topic) {
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link AliveFilter}. The cost per alive message is measured by {@link AliveHandlingBenchmark}.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class AliveFilterTest {
+
+    @Test
+    public void aliveAfterQuietIsDropped() {
+        AliveFilter filter = new AliveFilter();
+        Object device = new Object();
+
+        assertFalse(filter.isQuiet(device));
+        filter.quiet(device);
+        assertTrue(filter.isQuiet(device));
+        assertTrue(filter.isQuiet(device));
+        assertEquals(2, filter.getSkipped());
+    }
+
+    @Test
+    public void changeLetsTheNextAliveThrough() {
+        AliveFilter filter = new AliveFilter();
+        Object device = new Object();
+
+        filter.quiet(device);
+        filter.invalidate();
+        assertFalse(filter.isQuiet(device));
+
+        filter.quiet(device);
+        assertTrue(filter.isQuiet(device));
+    }
+
+    @Test
+    public void newDeviceObjectIsNotQuiet() {
+        AliveFilter filter = new AliveFilter();
+
+        filter.quiet(new Object());
+        assertFalse(filter.isQuiet(new Object()));
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTIOServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTServiceImpl;
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
+import org.eclipse.smarthome.test.java.JavaTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.registry.Registry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cost of one alive message per device on the jUPnP registry thread, with real handlers that are ONLINE and fully
+ * subscribed: remoteDeviceAdded always goes through the mailbox, remoteDeviceUpdated is dropped by the
+ * {@link AliveFilter}. The nanoseconds per alive message are logged.
+ *
+ * The devices are {@link SimulatedDevices}. Not part of the default test run, see the benchmark profile in the pom.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class AliveHandlingBenchmark extends JavaTest {
+
+    private final Logger logger = LoggerFactory.getLogger(AliveHandlingBenchmark.class);
+
+    private static final int DEVICES = 100;
+    private static final int ALIVES_PER_DEVICE = 1000;
+    private static final int ROUNDS = 5;
+
+    private final List<DrehbindingHandler> handlers = new ArrayList<>();
+    private final List<RemoteDevice> devices = new ArrayList<>();
+
+    private SimulatedDevices simulated;
+
+    @Before
+    public void setUp() throws Exception {
+        simulated = new SimulatedDevices();
+        String base = simulated.getBase();
+
+        Registry registry = mock(Registry.class);
+        RemoteDeviceDispatcher.getInstance().start(registry, 1);
+        ThingHandlerCallback callback = mock(ThingHandlerCallback.class);
+
+        for (int i = 0; i < DEVICES; i++) {
+            String udn = "alive-" + i;
+            Map<String, String> properties = new HashMap<>();
+            properties.put(UDN, udn);
+            properties.put(HOST, base);
+            Thing thing = mock(Thing.class);
+            when(thing.getProperties()).thenReturn(properties);
+            when(thing.getConfiguration()).thenReturn(new Configuration());
+
+            DrehbindingHandler handler = new DrehbindingHandler(thing);
+            handler.setCallback(callback);
+            handlers.add(handler);
+            devices.add(simulated.device(udn));
+        }
+
+        for (int i = 0; i < DEVICES; i++) {
+            handlers.get(i).initialize();
+            handlers.get(i).remoteDeviceAdded(devices.get(i));
+        }
+        waitForAssert(() -> {
+            for (DrehbindingHandler handler : handlers) {
+                assertEquals(DeviceState.ONLINE, handler.getDeviceState());
+            }
+        });
+
+        // Erst die Alive Message nach dem Online gehen lässt den Filter zu
+        waitForAssert(() -> {
+            for (int i = 0; i < DEVICES; i++) {
+                if (handlers.get(i).getSkippedAlives() == 0) {
+                    handlers.get(i).remoteDeviceUpdated(devices.get(i));
+                }
+                assertTrue(handlers.get(i).getSkippedAlives() > 0);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (DrehbindingHandler handler : handlers) {
+            handler.dispose();
+        }
+        RemoteDeviceDispatcher.getInstance().stop();
+        SubscriptionServiceImpl.reset();
+        RESTIOServiceImpl.reset();
+        RESTServiceImpl.reset();
+        simulated.close();
+    }
+
+    @Test
+    public void aliveCostPerDevice() {
+        long[] skipped = new long[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            skipped[i] = handlers.get(i).getSkippedAlives();
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long slow = measure(false);
+            long fast = measure(true);
+            logger.info("Round {}: {} ns per alive through the mailbox, {} ns per alive with the filter", round,
+                    slow, fast);
+        }
+
+        // Keine einzige gefilterte Alive Message ist in die Mailbox gegangen
+        for (int i = 0; i < DEVICES; i++) {
+            assertEquals((long) ROUNDS * ALIVES_PER_DEVICE, handlers.get(i).getSkippedAlives() - skipped[i]);
+            assertEquals(DeviceState.ONLINE, handlers.get(i).getDeviceState());
+        }
+    }
+
+    /**
+     * @return nanoseconds per alive message on the calling thread
+     */
+    private long measure(boolean filtered) {
+        long start = System.nanoTime();
+        for (int a = 0; a < ALIVES_PER_DEVICE; a++) {
+            for (int i = 0; i < DEVICES; i++) {
+                if (filtered) {
+                    handlers.get(i).remoteDeviceUpdated(devices.get(i));
+                } else {
+                    handlers.get(i).remoteDeviceAdded(devices.get(i));
+                }
+            }
+        }
+        return (System.nanoTime() - start) / ((long) ALIVES_PER_DEVICE * DEVICES);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTIOServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTServiceImpl;
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingStatusInfo;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
+import org.eclipse.smarthome.test.java.JavaTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.types.UDN;
+import org.jupnp.registry.Registry;
+
+/**
+ * The framework calls dispose and initialize on the same handler when the thing or its configuration is edited. The
+ * device is in the registry and accepts every subscription, so the handler has to get ONLINE every time.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class DrehbindingHandlerLifecycleTest extends JavaTest {
+
+    private SimulatedDevices simulated;
+    private DrehbindingHandler handler;
+    private ThingHandlerCallback callback;
+
+    @Before
+    public void setUp() throws Exception {
+        simulated = new SimulatedDevices();
+        RemoteDevice device = simulated.device("lifecycle");
+
+        Registry registry = mock(Registry.class);
+        when(registry.getRemoteDevice(any(UDN.class), anyBoolean())).thenReturn(device);
+        RemoteDeviceDispatcher.getInstance().start(registry, 1);
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(UDN, "lifecycle");
+        properties.put(HOST, simulated.getBase());
+        Thing thing = mock(Thing.class);
+        when(thing.getProperties()).thenReturn(properties);
+        when(thing.getConfiguration()).thenReturn(new Configuration());
+
+        callback = mock(ThingHandlerCallback.class);
+        handler = new DrehbindingHandler(thing);
+        handler.setCallback(callback);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handler.dispose();
+        RemoteDeviceDispatcher.getInstance().stop();
+        SubscriptionServiceImpl.reset();
+        RESTIOServiceImpl.reset();
+        RESTServiceImpl.reset();
+        simulated.close();
+    }
+
+    @Test
+    public void handlerGetsOnlineAgainAfterDisposeAndInitialize() {
+        handler.initialize();
+        waitForAssert(() -> assertEquals(DeviceState.ONLINE, handler.getDeviceState()));
+
+        handler.dispose();
+        waitForAssert(() -> assertEquals(DeviceState.OFFLINE, handler.getDeviceState()));
+        handler.initialize();
+
+        waitForAssert(() -> assertEquals(DeviceState.ONLINE, handler.getDeviceState()));
+        verify(callback, atLeast(2)).statusUpdated(any(Thing.class),
+                argThat((ThingStatusInfo info) -> info.getStatus() == ThingStatus.ONLINE));
+    }
+}
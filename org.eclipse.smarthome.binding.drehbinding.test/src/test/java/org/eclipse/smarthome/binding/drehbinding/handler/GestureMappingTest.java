@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.smarthome.binding.drehbinding.eventing.EventFilter;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link GestureMapping}
+ *
+ * @author Tristan - Initial contribution
+ */
+public class GestureMappingTest {
+
+    private static final String CHANNEL_SWIPE = "swipe";
+    private static final String CHANNEL_TURN = "turn";
+
+    private static final List<String> NO_OVERRIDE = Collections.emptyList();
+
+    private final GestureMapping mapping;
+
+    public GestureMappingTest() {
+        Map<String, Set<String>> channels = new HashMap<>();
+        channels.put(CHANNEL_SWIPE, new HashSet<>(Arrays.asList("swipeLeft", "swipeRight")));
+        channels.put(CHANNEL_TURN, new HashSet<>(Arrays.asList("turnLeft", "turnRight", "swipeLeft")));
+        channels.put(CHANNEL_LAST_MOTION, GestureMapping.ALL_GESTURES);
+        mapping = new GestureMapping(channels);
+    }
+
+    @Test
+    public void nothingLinkedNeedsNoEvents() {
+        assertEquals(EventFilter.NONE, mapping.filterFor(NO_OVERRIDE, NO_OVERRIDE, 0));
+        assertEquals(EventFilter.NONE, GestureMapping.DEFAULT.filterFor(NO_OVERRIDE, NO_OVERRIDE, 0));
+    }
+
+    @Test
+    public void linkedChannelsNeedTheUnionOfTheirGestures() {
+        EventFilter filter = mapping.filterFor(Arrays.asList(CHANNEL_SWIPE, CHANNEL_TURN), NO_OVERRIDE, 500);
+
+        assertEquals(EventFilter.of(Arrays.asList("swipeLeft", "swipeRight", "turnLeft", "turnRight"), 500), filter);
+        assertFalse(filter.accepts("tap"));
+    }
+
+    @Test
+    public void channelFedByAllGesturesNeedsEverything() {
+        assertEquals(EventFilter.ALL, mapping.filterFor(Arrays.asList(CHANNEL_SWIPE, CHANNEL_LAST_MOTION),
+                NO_OVERRIDE, 0));
+        assertEquals(EventFilter.ALL,
+                GestureMapping.DEFAULT.filterFor(Collections.singletonList(CHANNEL_EVENT_TIME), NO_OVERRIDE, 0));
+    }
+
+    @Test
+    public void overrideOnlyNarrowsTheDerivedGestures() {
+        List<String> swipe = Collections.singletonList(CHANNEL_SWIPE);
+
+        assertEquals(EventFilter.of(Collections.singletonList("swipeLeft"), 0),
+                mapping.filterFor(swipe, Arrays.asList("swipeLeft", "turnLeft"), 0));
+        assertEquals(EventFilter.NONE, mapping.filterFor(swipe, Collections.singletonList("turnLeft"), 0));
+        assertEquals(EventFilter.of(Collections.singletonList("tap"), 0), mapping.filterFor(
+                Collections.singletonList(CHANNEL_LAST_MOTION), Collections.singletonList("tap"), 0));
+    }
+
+    @Test
+    public void gestureOnlyFeedsItsChannels() {
+        assertTrue(mapping.feeds(CHANNEL_TURN, "swipeLeft"));
+        assertFalse(mapping.feeds(CHANNEL_SWIPE, "turnLeft"));
+        assertTrue(mapping.feeds(CHANNEL_LAST_MOTION, "anything"));
+        assertFalse(mapping.feeds(CHANNEL_EVENT_TIME, "anything"));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Mailbox}
+ *
+ * @author Tristan - Initial contribution
+ */
+public class MailboxTest {
+
+    private static final int POSTERS = 4;
+    private static final int MESSAGES = 10000;
+
+    @Test
+    public void messagesOfOnePosterArriveInOrderAndNeverConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(POSTERS);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Integer> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(POSTERS * MESSAGES);
+
+        Mailbox<Integer> mailbox = new Mailbox<>(executor, message -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            received.add(message);
+            running.decrementAndGet();
+            done.countDown();
+        });
+
+        List<Thread> posters = new ArrayList<>();
+        for (int p = 0; p < POSTERS; p++) {
+            int first = p * MESSAGES;
+            Thread poster = new Thread(() -> {
+                for (int i = 0; i < MESSAGES; i++) {
+                    mailbox.post(first + i);
+                }
+            });
+            posters.add(poster);
+            poster.start();
+        }
+        for (Thread poster : posters) {
+            poster.join();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        // Der letzte Drain zählt erst nach dem Empfang herunter
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, mailbox.getPending());
+        int[] last = new int[POSTERS];
+        for (int p = 0; p < POSTERS; p++) {
+            last[p] = p * MESSAGES - 1;
+        }
+        for (int message : received) {
+            int poster = message / MESSAGES;
+            assertEquals(last[poster] + 1, message);
+            last[poster] = message;
+        }
+    }
+
+    @Test
+    public void rejectedDrainRunsOnThePostingThread() {
+        List<String> received = new ArrayList<>();
+        Mailbox<String> mailbox = new Mailbox<>(task -> {
+            throw new RejectedExecutionException("stopped");
+        }, received::add);
+
+        mailbox.post("first");
+        mailbox.post("dispose");
+
+        assertEquals(2, received.size());
+        assertEquals("dispose", received.get(1));
+        assertEquals(0, mailbox.getPending());
+    }
+
+    @Test
+    public void failingReceiverDoesNotBlockTheMailbox() {
+        List<String> received = new ArrayList<>();
+        Mailbox<String> mailbox = new Mailbox<>(Runnable::run, message -> {
+            if (message.equals("bad")) {
+                throw new IllegalStateException(message);
+            }
+            received.add(message);
+        });
+
+        mailbox.post("bad");
+        mailbox.post("good");
+
+        assertEquals(1, received.size());
+        assertEquals(0, mailbox.getPending());
+    }
+}
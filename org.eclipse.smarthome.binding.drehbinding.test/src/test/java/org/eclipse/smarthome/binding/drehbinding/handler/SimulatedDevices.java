@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jupnp.model.ValidationException;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.meta.RemoteDeviceIdentity;
+import org.jupnp.model.types.UDN;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local HTTP server that plays the REST interface of any number of knobs. It accepts every subscription and lists
+ * all static topics as subscribed, so the reconciliation doesn't change anything.
+ *
+ * @author Tristan - Initial contribution
+ */
+class SimulatedDevices implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(SimulatedDevices.class);
+
+    private final ExecutorService server = Executors.newCachedThreadPool();
+    private final ServerSocket socket;
+
+    SimulatedDevices() throws IOException {
+        socket = new ServerSocket(0);
+        server.execute(this::accept);
+    }
+
+    /**
+     * @return base URL of all simulated devices, as stored in the {@code HOST} property
+     */
+    String getBase() {
+        return "http://127.0.0.1:" + socket.getLocalPort() + "/";
+    }
+
+    /**
+     * @return device as announced by jUPnP, its description lies on this server
+     */
+    RemoteDevice device(String udn) throws IOException, ValidationException {
+        return new RemoteDevice(
+                new RemoteDeviceIdentity(new UDN(udn), 1800, new URL(getBase() + "desc.xml"), null, null));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        server.shutdownNow();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket connection = socket.accept();
+                server.execute(() -> answer(connection));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void answer(Socket connection) {
+        String topics = "{\"parameter\":{\"topics\":[\"" + String.join("\",\"", STATIC_TOPICS) + "\"]}}";
+        try (Socket c = connection) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(c.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = c.getOutputStream();
+            String requestLine;
+            while ((requestLine = in.readLine()) != null) {
+                int length = 0;
+                String header;
+                while ((header = in.readLine()) != null && !header.isEmpty()) {
+                    if (header.toLowerCase().startsWith("content-length:")) {
+                        length = Integer.parseInt(header.substring(15).trim());
+                    }
+                }
+                for (int i = 0; i < length; i++) {
+                    in.read();
+                }
+
+                String response;
+                if (requestLine.startsWith("GET")) {
+                    byte[] body = topics.getBytes(StandardCharsets.UTF_8);
+                    response = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length
+                            + "\r\n\r\n" + topics;
+                } else {
+                    response = "HTTP/1.1 204 No Content\r\nContent-Length: 0\r\n\r\n";
+                }
+                out.write(response.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException e) {
+            logger.debug("Connection closed: {}", e.getMessage());
+        }
+    }
+}
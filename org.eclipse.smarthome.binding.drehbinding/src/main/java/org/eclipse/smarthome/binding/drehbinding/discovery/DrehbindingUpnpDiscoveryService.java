@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.DeviceEndpointTable;
 import org.eclipse.smarthome.config.discovery.DiscoveryResult;
 import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
 import org.eclipse.smarthome.config.discovery.upnp.UpnpDiscoveryParticipant;
@@ -49,7 +50,8 @@ public class DrehbindingUpnpDiscoveryService implements UpnpDiscoveryParticipant
         Map<String, Object> properties = new HashMap<>(2);
 
         // Device properties
-        properties.put(HOST, device.getDetails().getBaseURL());
+        // Auch Devices ohne URLBase in der Description bekommen eine Adresse
+        properties.put(HOST, DeviceEndpointTable.baseOf(device));
         properties.put(SERIAL, device.getDetails().getSerialNumber());
         properties.put(UDN, device.getIdentity().getUdn().getIdentifierString());
 
@@ -124,8 +126,8 @@ public class DrehbindingUpnpDiscoveryService implements UpnpDiscoveryParticipant
             logger.trace("Man: " + details.getManufacturerDetails().getManufacturer());
             logger.trace("Modell: " + details.getModelDetails().getModelName());
 
-            if (details.getManufacturerDetails().getManufacturer().toLowerCase().equals("tristan")
-                    && details.getModelDetails().getModelName().toLowerCase().equals("drehknopfprototype")) {
+            if (details.getManufacturerDetails().getManufacturer().equalsIgnoreCase(DEVICE_MANUFACTURER)
+                    && details.getModelDetails().getModelName().equalsIgnoreCase(DEVICE_MODEL)) {
                 return new ThingUID(THING_TYPE_DREHKNOPF, details.getSerialNumber());
             }
 
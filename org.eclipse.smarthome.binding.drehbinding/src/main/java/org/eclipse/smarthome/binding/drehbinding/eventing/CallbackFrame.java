@@ -0,0 +1,206 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flyweight view of one parsed callback message ({@code topic:...;k:v;}). The raw bytes are kept in a buffer that
+ * is reused for the next message, the fields are only offsets into it. Topic and known keys are interned by the
+ * {@link CallbackFrameParser}, values are only turned into Strings when they are asked for.
+ *
+ * A frame handed to a {@link CallbackFrameHandler} or {@link Subscriber} is only valid during that call. Whoever
+ * needs it longer must {@link #copyFrom(CallbackFrame) copy} it.
+ *
+ * Is NOT ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class CallbackFrame {
+
+    /**
+     * Largest frame that can be stored
+     */
+    public static final int MAX_FRAME_LENGTH = 1024;
+
+    /**
+     * Maximum number of key value pairs after the topic
+     */
+    public static final int MAX_FIELDS = 16;
+
+    final byte[] data = new byte[MAX_FRAME_LENGTH];
+    int length;
+
+    String topic;
+    int fieldCount;
+
+    /**
+     * Interned key of each field, null if the key is not in the table of known keys
+     */
+    final String[] keys = new String[MAX_FIELDS];
+    final int[] keyStart = new int[MAX_FIELDS];
+    final int[] keyEnd = new int[MAX_FIELDS];
+    final int[] valueStart = new int[MAX_FIELDS];
+    final int[] valueEnd = new int[MAX_FIELDS];
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return number of key value pairs
+     */
+    public int size() {
+        return fieldCount;
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @param key
+     * @return the value of the key, null if the frame doesn't contain it
+     */
+    public String get(String key) {
+        int index = indexOf(key);
+        return index < 0 ? null : getValue(index);
+    }
+
+    public String getKey(int index) {
+        String key = keys[index];
+        if (key != null) {
+            return key;
+        }
+
+        return new String(data, keyStart[index], keyEnd[index] - keyStart[index], StandardCharsets.UTF_8);
+    }
+
+    public String getValue(int index) {
+        return new String(data, valueStart[index], valueEnd[index] - valueStart[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the value of the key as a non negative decimal number without creating a String.
+     *
+     * @param defaultValue returned if the frame doesn't contain the key or the value is not a number
+     */
+    public long getLong(String key, long defaultValue) {
+        int index = indexOf(key);
+        if (index < 0 || valueStart[index] == valueEnd[index] || valueEnd[index] - valueStart[index] > 18) {
+            return defaultValue;
+        }
+
+        long value = 0;
+        for (int i = valueStart[index]; i < valueEnd[index]; i++) {
+            byte digit = data[i];
+            if (digit < '0' || digit > '9') {
+                return defaultValue;
+            }
+            value = value * 10 + (digit - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * Hashes the value of the key without creating a String. Equal to {@link StripedExecutor#hash(String)} of the
+     * value.
+     *
+     * @return the hash, 0 if the frame doesn't contain the key
+     */
+    public int valueHash(String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return 0;
+        }
+
+        int hash = 0;
+        for (int i = valueStart[index]; i < valueEnd[index]; i++) {
+            hash = 31 * hash + data[i];
+        }
+
+        return hash;
+    }
+
+    /**
+     * Compares topic and the value of the key of both frames without creating Strings.
+     *
+     * @return true if both frames have the same topic and the same value for the key, or both lack the key
+     */
+    public boolean sameTopicAndValue(CallbackFrame other, String key) {
+        if (topic == null || !topic.equals(other.topic)) {
+            return false;
+        }
+
+        int index = indexOf(key);
+        int otherIndex = other.indexOf(key);
+        if (index < 0 || otherIndex < 0) {
+            return index == otherIndex;
+        }
+
+        int length = valueEnd[index] - valueStart[index];
+        if (length != other.valueEnd[otherIndex] - other.valueStart[otherIndex]) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (data[valueStart[index] + i] != other.data[other.valueStart[otherIndex] + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies another frame into this one, reusing the buffers of this frame.
+     */
+    public void copyFrom(CallbackFrame other) {
+        System.arraycopy(other.data, 0, data, 0, other.length);
+        length = other.length;
+        topic = other.topic;
+        fieldCount = other.fieldCount;
+        System.arraycopy(other.keys, 0, keys, 0, other.fieldCount);
+        System.arraycopy(other.keyStart, 0, keyStart, 0, other.fieldCount);
+        System.arraycopy(other.keyEnd, 0, keyEnd, 0, other.fieldCount);
+        System.arraycopy(other.valueStart, 0, valueStart, 0, other.fieldCount);
+        System.arraycopy(other.valueEnd, 0, valueEnd, 0, other.fieldCount);
+    }
+
+    void clear() {
+        length = 0;
+        topic = null;
+        fieldCount = 0;
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < fieldCount; i++) {
+            String known = keys[i];
+            if (known != null ? known.equals(key) : rawKeyEquals(i, key)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean rawKeyEquals(int index, String key) {
+        int length = keyEnd[index] - keyStart[index];
+        if (length != key.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (data[keyStart[index] + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, 0, length, StandardCharsets.UTF_8);
+    }
+}
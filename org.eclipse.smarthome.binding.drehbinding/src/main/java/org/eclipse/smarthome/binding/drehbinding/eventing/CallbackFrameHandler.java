@@ -0,0 +1,32 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Receives the frames the {@link NioCallbackListener} cut out of the device connections.
+ *
+ * @author Tristan
+ *
+ */
+public interface CallbackFrameHandler {
+
+    /**
+     * Called on the I/O thread before the frame is checked any further, above all before its sequence number is
+     * tracked. A frame that isn't accepted is dropped, so an event of a foreign subscription can't disturb the
+     * sequence of the device.
+     *
+     * @param frame the parsed callback message, only valid during this call
+     * @return false to drop the frame, true by default
+     */
+    public default boolean accepts(@NonNull CallbackFrame frame) {
+        return true;
+    }
+
+    /**
+     * Called on the I/O thread for every well formed frame. Implementations must not block.
+     *
+     * @param frame the parsed callback message, only valid during this call
+     */
+    public void onFrame(@NonNull CallbackFrame frame);
+
+}
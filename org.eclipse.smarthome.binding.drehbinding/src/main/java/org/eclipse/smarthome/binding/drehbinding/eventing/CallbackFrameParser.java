@@ -0,0 +1,145 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single pass parser for the callback wire format {@code topic:<topic>;<key>:<value>;...}. It doesn't allocate for
+ * well formed frames with known topics: the bytes are copied into the buffer of the target {@link CallbackFrame},
+ * topic and keys are looked up in a table of known names.
+ *
+ * Malformed frames are rejected by returning false. The parser never throws for bad input.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public final class CallbackFrameParser {
+
+    private static final byte[] TOPIC_PREFIX = "topic:".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String[] KNOWN_TOPICS = { TOPIC_NEW_MOTION, TOPIC_STREAM_HELLO, TOPIC_KEEPALIVE };
+    private static final byte[][] KNOWN_TOPIC_BYTES = toBytes(KNOWN_TOPICS);
+
+    private static final String[] KNOWN_KEYS = { NAME, IDENTIFIER, SEQ, BOOTID };
+    private static final byte[][] KNOWN_KEY_BYTES = toBytes(KNOWN_KEYS);
+
+    private CallbackFrameParser() {
+    }
+
+    /**
+     * Parses one frame. A trailing carriage return is ignored.
+     *
+     * @param source buffer holding the frame
+     * @param offset start of the frame in the buffer
+     * @param length length of the frame without line terminator
+     * @param frame receives the parsed frame, its previous content is overwritten
+     * @return false if the frame is malformed, the content of the frame is undefined then
+     */
+    public static boolean parse(byte[] source, int offset, int length, CallbackFrame frame) {
+        frame.clear();
+
+        if (length > 0 && source[offset + length - 1] == '\r') {
+            length--;
+        }
+
+        if (length > frame.data.length || length <= TOPIC_PREFIX.length) {
+            return false;
+        }
+
+        System.arraycopy(source, offset, frame.data, 0, length);
+        frame.length = length;
+        byte[] data = frame.data;
+
+        for (int i = 0; i < TOPIC_PREFIX.length; i++) {
+            if (data[i] != TOPIC_PREFIX[i]) {
+                return false;
+            }
+        }
+
+        int topicEnd = indexOf(data, TOPIC_PREFIX.length, length, (byte) ';');
+        if (topicEnd < 0 || topicEnd == TOPIC_PREFIX.length) {
+            return false;
+        }
+
+        String topic = lookup(KNOWN_TOPICS, KNOWN_TOPIC_BYTES, data, TOPIC_PREFIX.length, topicEnd);
+        frame.topic = topic != null ? topic
+                : new String(data, TOPIC_PREFIX.length, topicEnd - TOPIC_PREFIX.length, StandardCharsets.UTF_8);
+
+        int position = topicEnd + 1;
+        while (position < length) {
+            int separator = -1;
+            int end = -1;
+            for (int i = position; i < length; i++) {
+                byte current = data[i];
+                if (current == ':' && separator < 0) {
+                    separator = i;
+                } else if (current == ';') {
+                    end = i;
+                    break;
+                }
+            }
+
+            if (separator < 0 || end < 0 || separator == position) {
+                return false;
+            }
+
+            int field = frame.fieldCount;
+            if (field == CallbackFrame.MAX_FIELDS) {
+                return false;
+            }
+
+            frame.keys[field] = lookup(KNOWN_KEYS, KNOWN_KEY_BYTES, data, position, separator);
+            frame.keyStart[field] = position;
+            frame.keyEnd[field] = separator;
+            frame.valueStart[field] = separator + 1;
+            frame.valueEnd[field] = end;
+            frame.fieldCount++;
+
+            position = end + 1;
+        }
+
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static String lookup(String[] names, byte[][] nameBytes, byte[] data, int start, int end) {
+        int length = end - start;
+        outer: for (int i = 0; i < nameBytes.length; i++) {
+            byte[] candidate = nameBytes[i];
+            if (candidate.length != length) {
+                continue;
+            }
+
+            for (int j = 0; j < length; j++) {
+                if (candidate[j] != data[start + j]) {
+                    continue outer;
+                }
+            }
+
+            return names[i];
+        }
+
+        return null;
+    }
+
+    private static byte[][] toBytes(String[] names) {
+        byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+
+        return bytes;
+    }
+}
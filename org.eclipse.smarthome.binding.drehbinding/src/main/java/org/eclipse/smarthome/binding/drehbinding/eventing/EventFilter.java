@@ -0,0 +1,110 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tells the device which events a subscriber actually needs, so it doesn't send the others at all. Sent along with
+ * every subscription. Devices that don't know the parameters ignore them and send everything, so the subscriber
+ * applies the same filter to the events it receives.
+ *
+ * {@code gestures} is the allow-list of gesture names, empty if the subscriber needs no events at all.
+ * {@code minInterval} is the minimum time in ms between two events.
+ *
+ * Is ThreadSafe, immutable
+ *
+ * @author Tristan
+ *
+ */
+public final class EventFilter {
+
+    /**
+     * Every event, the device gets no filter parameters
+     */
+    public static final EventFilter ALL = new EventFilter(null, 0);
+
+    /**
+     * No event. The subscription stays, so the device still knows the binding.
+     */
+    public static final EventFilter NONE = new EventFilter(Collections.emptySet(), 0);
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * null for all gestures
+     */
+    private final Set<String> gestures;
+    private final long minInterval;
+
+    private EventFilter(Set<String> gestures, long minInterval) {
+        this.gestures = gestures;
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * @param gestures names of the gestures to send, null or empty for all
+     * @param minInterval minimum time in ms between two events, 0 for no limit
+     */
+    public static EventFilter of(Collection<String> gestures, long minInterval) {
+        Set<String> allowed = null;
+        if (gestures != null && !gestures.isEmpty()) {
+            // Sortiert, damit gleiche Filter auch gleich beim Device ankommen
+            allowed = Collections.unmodifiableSet(new TreeSet<>(gestures));
+        }
+        if (allowed == null && minInterval <= 0) {
+            return ALL;
+        }
+
+        return new EventFilter(allowed, Math.max(0, minInterval));
+    }
+
+    /**
+     * @return false if the device shouldn't have sent the gesture
+     */
+    public boolean accepts(String gesture) {
+        return gestures == null || gestures.contains(gesture);
+    }
+
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * Adds the filter to the parameters of a subscription request
+     */
+    public void putParams(Map<String, String> params) {
+        if (gestures != null) {
+            params.put("gestures", String.join(SEPARATOR, gestures));
+        }
+        if (minInterval > 0) {
+            params.put("minInterval", "" + minInterval);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof EventFilter)) {
+            return false;
+        }
+
+        EventFilter other = (EventFilter) obj;
+        return minInterval == other.minInterval
+                && (gestures == null ? other.gestures == null : gestures.equals(other.gestures));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (gestures == null ? 0 : gestures.hashCode()) + Long.hashCode(minInterval);
+    }
+
+    @Override
+    public String toString() {
+        return "gestures=" + (gestures == null ? "all" : gestures) + ", minInterval=" + minInterval;
+    }
+}
@@ -0,0 +1,252 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded handoff of events from the ingestion thread to the delivery workers. All slots are allocated up front
+ * and events are copied in and out of them, so the handoff itself creates no garbage.
+ *
+ * Producers are the shards of the callback listener, there can be any number of consumers. The
+ * {@link StripedExecutor} uses one buffer per lane with a single consumer each. What happens when the buffer is full
+ * is decided by the {@link OverflowPolicy}.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class EventRingBuffer {
+
+    private final CallbackFrame[] slots;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Index of the oldest event, guarded by lock
+     */
+    private int head = 0;
+
+    /**
+     * Number of queued events, guarded by lock
+     */
+    private int count = 0;
+
+    /**
+     * Set by {@link #wakeUp()}, guarded by lock
+     */
+    private boolean wakeUp = false;
+
+    /**
+     * Set by {@link #shutdown()}, guarded by lock
+     */
+    private boolean closed = false;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public EventRingBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.overflowPolicy = overflowPolicy;
+        slots = new CallbackFrame[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new CallbackFrame();
+        }
+    }
+
+    /**
+     * Copies the event into the buffer.
+     *
+     * @param frame the event, may be reused by the caller afterwards
+     * @return false if the event was dropped or the buffer was shut down
+     * @throws InterruptedException if the policy is {@link OverflowPolicy#BLOCK} and the caller was interrupted
+     *             while waiting
+     */
+    public boolean publish(CallbackFrame frame) throws InterruptedException {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+
+            if (count == slots.length) {
+                switch (overflowPolicy) {
+                    case DROP_NEWEST:
+                        dropped.incrementAndGet();
+                        return false;
+
+                    case COALESCE_PER_DEVICE:
+                        if (coalesce(frame)) {
+                            return true;
+                        }
+                        dropOldest();
+                        break;
+
+                    case BLOCK:
+                        while (count == slots.length && !closed) {
+                            notFull.await();
+                        }
+                        if (closed) {
+                            // Niemand holt die Events mehr ab, das Warten würde den Listener für immer aufhalten
+                            return false;
+                        }
+                        break;
+
+                    case DROP_OLDEST:
+                    default:
+                        dropOldest();
+                        break;
+                }
+            }
+
+            slots[(head + count) % slots.length].copyFrom(frame);
+            count++;
+            published.incrementAndGet();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the next event and copies it into the target.
+     *
+     * @param target receives the event
+     * @param timeout maximum time to wait in ms
+     * @return false if no event arrived in time or the wait was ended by {@link #wakeUp()}
+     * @throws InterruptedException
+     */
+    public boolean take(CallbackFrame target, long timeout) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        lock.lock();
+        try {
+            while (count == 0) {
+                if (nanos <= 0 || wakeUp || closed) {
+                    wakeUp = false;
+                    return false;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+
+            target.copyFrom(slots[head]);
+            head = (head + 1) % slots.length;
+            count--;
+            notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets a consumer waiting in {@link #take(CallbackFrame, long)} return without an event, or the next call return
+     * right away if nobody is waiting.
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            wakeUp = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Refuses all further events and releases every publisher waiting for room. Consumers waiting in
+     * {@link #take(CallbackFrame, long)} return, events still queued can be taken.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock
+     */
+    private void dropOldest() {
+        head = (head + 1) % slots.length;
+        count--;
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Overwrites the newest queued event of the same device and topic. Must be called while holding the lock.
+     *
+     * The new event takes the queue position of the replaced one, so it is delivered ahead of everything that
+     * arrived in between: events of other devices and other topics of the same device. Only the order of the events
+     * of one device and topic is kept.
+     *
+     * @return false if there is no such event
+     */
+    private boolean coalesce(CallbackFrame frame) {
+        for (int i = count - 1; i >= 0; i--) {
+            CallbackFrame queued = slots[(head + i) % slots.length];
+            if (queued.sameTopicAndValue(frame, IDENTIFIER)) {
+                queued.copyFrom(frame);
+                published.incrementAndGet();
+                coalesced.incrementAndGet();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return number of events waiting for delivery
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of events accepted since creation, including coalesced ones
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * @return number of events lost because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of events that replaced an older event of the same device
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,139 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Subscription requests currently sent to the devices, keyed by device, topic, bootid and event filter. A request for
+ * a topic that is already in flight joins it instead of sending the same subscription a second time, e.g. when
+ * remoteDeviceAdded and remoteDeviceUpdated of one device run at the same time. A request with a changed filter
+ * doesn't join, otherwise the new filter would never reach the device. Only the caller that sent the
+ * request gets the subscription callbacks, joining callers just get the result.
+ *
+ * A topic leaves the table as soon as its request completed, results are never cached.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+class InFlightSubscriptions {
+
+    private static final class Key {
+        final String identifier;
+        final String topic;
+        final long bootid;
+        final EventFilter filter;
+
+        Key(String identifier, String topic, long bootid, EventFilter filter) {
+            this.identifier = identifier;
+            this.topic = topic;
+            this.bootid = bootid;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return bootid == other.bootid && identifier.equals(other.identifier) && topic.equals(other.topic)
+                    && filter.equals(other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(identifier, topic, bootid, filter);
+        }
+    }
+
+    private final ConcurrentMap<Key, CompletableFuture<Boolean>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong joined = new AtomicLong();
+
+    /**
+     * Subscribes the topics, joining the requests already in flight
+     *
+     * @param request sends one request for the topics nobody else is requesting right now and completes with topic
+     *            -> accepted. Is called at most once and not at all if every topic is already in flight.
+     * @return topic -> accepted for all topics, never completes exceptionally
+     */
+    CompletableFuture<Map<String, Boolean>> subscribe(Subscriber subscriber, Collection<String> topics, long bootid,
+            Function<List<String>, CompletableFuture<Map<String, Boolean>>> request) {
+        Map<String, CompletableFuture<Boolean>> results = new LinkedHashMap<>();
+        Map<Key, CompletableFuture<Boolean>> own = new HashMap<>();
+        List<String> requested = new ArrayList<>();
+        EventFilter filter = subscriber.getEventFilter();
+
+        for (String topic : topics) {
+            Key key = new Key(subscriber.getIdentifier(), topic, bootid, filter);
+            CompletableFuture<Boolean> flight = new CompletableFuture<>();
+            CompletableFuture<Boolean> running = flights.putIfAbsent(key, flight);
+            if (running != null) {
+                joined.incrementAndGet();
+                results.put(topic, running);
+            } else {
+                own.put(key, flight);
+                requested.add(topic);
+                results.put(topic, flight);
+            }
+        }
+
+        if (!requested.isEmpty()) {
+            CompletableFuture<Map<String, Boolean>> sent;
+            try {
+                sent = request.apply(requested);
+            } catch (RuntimeException e) {
+                sent = new CompletableFuture<>();
+                sent.completeExceptionally(e);
+            }
+
+            sent.whenComplete((accepted, e) -> {
+                for (Map.Entry<Key, CompletableFuture<Boolean>> flight : own.entrySet()) {
+                    // Erst austragen, sonst hängt sich ein neuer Request noch an das alte Ergebnis
+                    flights.remove(flight.getKey(), flight.getValue());
+                    flight.getValue()
+                            .complete(accepted != null && Boolean.TRUE.equals(accepted.get(flight.getKey().topic)));
+                }
+            });
+        }
+
+        return CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[results.size()]))
+                .thenApply(v -> {
+                    Map<String, Boolean> accepted = new HashMap<>();
+                    for (Map.Entry<String, CompletableFuture<Boolean>> result : results.entrySet()) {
+                        accepted.put(result.getKey(), result.getValue().join());
+                    }
+                    return accepted;
+                });
+    }
+
+    /**
+     * @return number of topics currently requested
+     */
+    int getInFlight() {
+        return flights.size();
+    }
+
+    /**
+     * @return number of topics that joined a running request instead of sending their own
+     */
+    long getJoined() {
+        return joined.get();
+    }
+}
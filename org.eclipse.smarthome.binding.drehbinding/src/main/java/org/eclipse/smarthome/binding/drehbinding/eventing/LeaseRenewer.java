@@ -0,0 +1,231 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the leases devices grant on subscription alive. A subscription with a lease ends on the device when the lease
+ * runs out, so subscriptions the binding forgot to remove expire on their own.
+ *
+ * A lease is due for renewal after three quarters of its time. Once every window all devices are checked, all leases
+ * of a device due within the next window are renewed together with one request. A lease that runs out without being
+ * renewed counts as a failed subscription.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class LeaseRenewer {
+
+    private final Logger logger = LoggerFactory.getLogger(LeaseRenewer.class);
+
+    /**
+     * Does the renewal requests for the {@link LeaseRenewer}
+     */
+    public interface Renewal {
+
+        /**
+         * Renews the topics at the device. Must not block, the result is reported with
+         * {@link LeaseRenewer#granted(Subscriber, Collection, long, long)}.
+         *
+         * @return completes when the device answered or the request failed
+         */
+        CompletableFuture<?> renew(Subscriber subscriber, Collection<String> topics, long bootid);
+
+        /**
+         * The lease of the topic ran out without being renewed
+         */
+        void expired(Subscriber subscriber, String topic);
+    }
+
+    private static class Lease {
+        long due;
+        long expiry;
+    }
+
+    private static class Device {
+        long bootid;
+        final Map<String, Lease> leases = new HashMap<>();
+        boolean renewing = false;
+    }
+
+    private final String name;
+    private final long window;
+    private final Renewal renewal;
+
+    // Geschützt durch sich selbst
+    private final Map<Subscriber, Device> devices = new HashMap<>();
+
+    private ScheduledExecutorService scanner;
+
+    private final AtomicLong renewals = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * @param name name of the renewal thread
+     * @param window time in ms between two checks, leases due within it are renewed together
+     * @param renewal
+     */
+    public LeaseRenewer(String name, long window, Renewal renewal) {
+        this.name = name;
+        this.window = window;
+        this.renewal = renewal;
+    }
+
+    public synchronized void start() {
+        if (scanner != null) {
+            return;
+        }
+
+        scanner = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name));
+        scanner.scheduleWithFixedDelay(this::scan, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (scanner != null) {
+            scanner.shutdownNow();
+        }
+        synchronized (devices) {
+            devices.clear();
+        }
+    }
+
+    /**
+     * Starts or extends the leases of the topics
+     *
+     * @param ttl lease time in seconds granted by the device
+     */
+    public void granted(Subscriber subscriber, Collection<String> topics, long bootid, long ttl) {
+        long now = System.currentTimeMillis();
+        long millis = TimeUnit.SECONDS.toMillis(ttl);
+
+        synchronized (devices) {
+            Device device = devices.computeIfAbsent(subscriber, s -> new Device());
+            if (device.bootid != bootid) {
+                device.leases.clear();
+                device.bootid = bootid;
+            }
+
+            for (String topic : topics) {
+                Lease lease = device.leases.computeIfAbsent(topic, t -> new Lease());
+                lease.due = now + millis * 3 / 4;
+                lease.expiry = now + millis;
+            }
+        }
+    }
+
+    /**
+     * Forgets the lease, e.g. after unsubscribing
+     */
+    public void remove(Subscriber subscriber, String topic) {
+        synchronized (devices) {
+            Device device = devices.get(subscriber);
+            if (device != null) {
+                device.leases.remove(topic);
+                if (device.leases.isEmpty() && !device.renewing) {
+                    devices.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    void scan() {
+        long now = System.currentTimeMillis();
+        long horizon = now + window;
+        Map<Subscriber, List<String>> due = new HashMap<>();
+        Map<Subscriber, Long> bootids = new HashMap<>();
+        Map<Subscriber, List<String>> lost = new HashMap<>();
+
+        synchronized (devices) {
+            for (Map.Entry<Subscriber, Device> entry : devices.entrySet()) {
+                Device device = entry.getValue();
+                Iterator<Map.Entry<String, Lease>> leases = device.leases.entrySet().iterator();
+                while (leases.hasNext()) {
+                    Map.Entry<String, Lease> lease = leases.next();
+                    if (lease.getValue().expiry <= now) {
+                        leases.remove();
+                        lost.computeIfAbsent(entry.getKey(), s -> new ArrayList<>()).add(lease.getKey());
+                    } else if (!device.renewing && lease.getValue().due <= horizon) {
+                        due.computeIfAbsent(entry.getKey(), s -> new ArrayList<>()).add(lease.getKey());
+                    }
+                }
+
+                if (due.containsKey(entry.getKey())) {
+                    device.renewing = true;
+                    bootids.put(entry.getKey(), device.bootid);
+                }
+            }
+            devices.values().removeIf(device -> device.leases.isEmpty() && !device.renewing);
+        }
+
+        for (Map.Entry<Subscriber, List<String>> entry : lost.entrySet()) {
+            for (String topic : entry.getValue()) {
+                logger.debug("Lease of {} for {} ran out", entry.getKey().getIdentifier(), topic);
+                expired.incrementAndGet();
+                renewal.expired(entry.getKey(), topic);
+            }
+        }
+
+        for (Map.Entry<Subscriber, List<String>> entry : due.entrySet()) {
+            Subscriber subscriber = entry.getKey();
+            renewals.incrementAndGet();
+            try {
+                renewal.renew(subscriber, entry.getValue(), bootids.get(subscriber))
+                        .whenComplete((result, e) -> renewed(subscriber));
+            } catch (RuntimeException e) {
+                logger.warn("Renewal of {} failed: {}", subscriber.getIdentifier(), e.toString());
+                renewed(subscriber);
+            }
+        }
+    }
+
+    private void renewed(Subscriber subscriber) {
+        synchronized (devices) {
+            Device device = devices.get(subscriber);
+            if (device != null) {
+                device.renewing = false;
+            }
+        }
+    }
+
+    /**
+     * @return number of topics with a lease
+     */
+    public int getLeases() {
+        synchronized (devices) {
+            int leases = 0;
+            for (Device device : devices.values()) {
+                leases += device.leases.size();
+            }
+            return leases;
+        }
+    }
+
+    /**
+     * @return number of renewal requests since the start of the binding
+     */
+    public long getRenewals() {
+        return renewals.get();
+    }
+
+    /**
+     * @return number of leases that ran out
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+}
@@ -0,0 +1,603 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketOption;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selector based replacement for the blocking accept loop. All device connections are multiplexed on the
+ * thread that runs this listener, so a slow or half open connection can't stall the delivery of other events.
+ *
+ * Framing is the same as before: one message per line in the form {@code topic:...;k:v;}. A message that is
+ * terminated by the device closing the connection instead of a line break is accepted as well. Frames are parsed
+ * straight out of the connection buffer by the {@link CallbackFrameParser}, malformed frames are dropped.
+ *
+ * Two kinds of connections are supported:
+ * <ul>
+ * <li>Single: the device connects, sends one event and the connection is closed afterwards.</li>
+ * <li>Persistent: the device opens the connection with {@code topic:hello;identifier:<udn>;} and then keeps it open
+ * for any number of events. {@code topic:keepalive;} frames keep an otherwise idle stream alive. If the device
+ * reconnects, the older stream of the same device is closed.</li>
+ * </ul>
+ *
+ * Optionally the same frames are received as UDP datagrams on the same port number, one frame per datagram. Every
+ * datagram is received into the same buffer. The {@code seq} field of the frame numbers the events of a device, lost
+ * events are counted and late or duplicate ones dropped by a {@link SequenceTracker}.
+ *
+ * Datagrams can also be received from a multicast group, so one event a device sends reaches every openHAB that
+ * joined the group. Such events are checked by sequence number and device bootid just like unicast datagrams.
+ *
+ * To spread the ingestion across cores several listeners can be bound to the same port with {@code SO_REUSEPORT},
+ * each one a shard with its own thread, selector and buffers. The kernel assigns every connection and every datagram
+ * sender to one shard.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class NioCallbackListener implements Runnable {
+
+    private final Logger logger = LoggerFactory.getLogger(NioCallbackListener.class);
+
+    /**
+     * Maximum time the selector sleeps before idle connections are checked.
+     */
+    private static final long SWEEP_INTERVAL = 500;
+
+    /**
+     * Time in ms no connection is accepted after accepting failed. If the process ran out of file descriptors, the
+     * server socket stays acceptable and the selector would spin until a connection is closed.
+     */
+    private static final long ACCEPT_BACKOFF = 100;
+
+    /**
+     * Name of the socket option that lets several sockets bind the same port, the kernel spreads connections and
+     * datagrams across them. Looked up by name because {@code StandardSocketOptions.SO_REUSEPORT} only exists since
+     * Java 9.
+     */
+    private static final String SO_REUSEPORT = "SO_REUSEPORT";
+
+    private final CallbackFrameHandler frameHandler;
+    private final long readTimeout;
+    private final long streamIdleTimeout;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * null if datagrams are not received
+     */
+    private final DatagramChannel datagramChannel;
+
+    /**
+     * Receive buffer for all datagrams, one byte larger than a frame to notice truncated datagrams. Only used by the
+     * I/O thread.
+     */
+    private final ByteBuffer datagramBuffer = ByteBuffer.allocate(CallbackFrame.MAX_FRAME_LENGTH + 1);
+
+    private final SequenceTracker sequences = new SequenceTracker();
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * Time accepting is resumed, 0 if it isn't paused. Only used by the I/O thread.
+     */
+    private long acceptPausedUntil = 0;
+
+    /**
+     * Open persistent connections by device identifier. Only used by the I/O thread.
+     */
+    private final Map<String, SelectionKey> streams = new HashMap<>();
+
+    /**
+     * Parse target reused for every frame. Only used by the I/O thread.
+     */
+    private final CallbackFrame frame = new CallbackFrame();
+
+    /**
+     * Per connection state, attached to the {@link SelectionKey} of the connection.
+     */
+    private static class Connection {
+        final ByteBuffer buffer = ByteBuffer.allocate(CallbackFrame.MAX_FRAME_LENGTH);
+        long lastActivity;
+
+        /**
+         * Set by the hello frame of a persistent connection
+         */
+        String device;
+
+        Connection(long now) {
+            this.lastActivity = now;
+        }
+    }
+
+    /**
+     * Opens the listening socket right away, so that the callback port is known before the first subscription is
+     * sent.
+     *
+     * @param port port to listen on, 0 for an ephemeral port
+     * @param readTimeout time in ms a single connection may stay silent before it is closed
+     * @param streamIdleTimeout time in ms a persistent connection may stay silent before it is closed
+     * @param datagrams true to receive datagrams on the same port number as well
+     * @param reusePort true to let other shards bind the same port, see {@link #supportsReusePort()}
+     * @param frameHandler receives all complete frames. Must be ThreadSafe if there are several shards.
+     * @throws IOException if a socket could not be opened
+     */
+    public NioCallbackListener(int port, long readTimeout, long streamIdleTimeout, boolean datagrams,
+            boolean reusePort, CallbackFrameHandler frameHandler) throws IOException {
+        this.frameHandler = frameHandler;
+        this.readTimeout = readTimeout;
+        this.streamIdleTimeout = streamIdleTimeout;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        datagramChannel = datagrams ? DatagramChannel.open() : null;
+        try {
+            serverChannel.configureBlocking(false);
+            if (reusePort) {
+                enableReusePort(serverChannel);
+            }
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+            if (datagramChannel != null) {
+                datagramChannel.configureBlocking(false);
+                if (reusePort) {
+                    enableReusePort(datagramChannel);
+                }
+                datagramChannel.bind(new InetSocketAddress(getLocalPort()));
+                datagramChannel.register(selector, SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            serverChannel.close();
+            if (datagramChannel != null) {
+                datagramChannel.close();
+            }
+            selector.close();
+            throw e;
+        }
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return true if the platform allows several shards on one port
+     */
+    public static boolean supportsReusePort() {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            return findReusePort(channel) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void enableReusePort(NetworkChannel channel) throws IOException {
+        SocketOption<?> option = findReusePort(channel);
+        if (option == null) {
+            throw new IOException(SO_REUSEPORT + " is not supported");
+        }
+
+        channel.setOption((SocketOption<Boolean>) option, true);
+    }
+
+    private static SocketOption<?> findReusePort(NetworkChannel channel) {
+        for (SocketOption<?> option : channel.supportedOptions()) {
+            if (SO_REUSEPORT.equals(option.name())) {
+                return option;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Receives datagrams sent to the multicast group as well. Must be called before the listener is started.
+     *
+     * @param group multicast address
+     * @param port port the devices send to
+     * @param networkInterface interface to join the group on, null to pick the first one that supports multicast
+     * @throws IOException if the group could not be joined
+     */
+    public void joinGroup(InetAddress group, int port, NetworkInterface networkInterface) throws IOException {
+        if (networkInterface == null) {
+            networkInterface = findMulticastInterface(group);
+        }
+
+        DatagramChannel channel = DatagramChannel
+                .open(group instanceof Inet4Address ? StandardProtocolFamily.INET : StandardProtocolFamily.INET6);
+        try {
+            // Ein zweites openHAB auf demselben Host muss der Gruppe ebenfalls beitreten können
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(port));
+            channel.join(group, networkInterface);
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        logger.debug("Joined multicast group {}:{} on {}", group.getHostAddress(), port, networkInterface.getName());
+    }
+
+    private static NetworkInterface findMulticastInterface(InetAddress group) throws IOException {
+        for (NetworkInterface candidate : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            if (!candidate.isUp() || candidate.isLoopback() || !candidate.supportsMulticast()) {
+                continue;
+            }
+
+            for (InetAddress address : Collections.list(candidate.getInetAddresses())) {
+                if (address.getClass() == group.getClass()) {
+                    return candidate;
+                }
+            }
+        }
+
+        throw new IOException("No network interface supports multicast for " + group.getHostAddress());
+    }
+
+    /**
+     * @return number of datagram events that never arrived
+     */
+    public long getLostDatagrams() {
+        return sequences.getLost();
+    }
+
+    /**
+     * @return number of datagram events dropped because they arrived late or twice
+     */
+    public long getLateDatagrams() {
+        return sequences.getLate();
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!shutdown) {
+                selector.select(acceptPausedUntil != 0 ? ACCEPT_BACKOFF : SWEEP_INTERVAL);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept(key);
+                    } else if (key.channel() instanceof DatagramChannel) {
+                        receive((DatagramChannel) key.channel());
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+
+                resumeAccept();
+                closeIdleConnections();
+            }
+        } catch (IOException e) {
+            // Nur wenn der Selector oder der Server Socket selbst kaputt ist
+            logger.error("Callback listener stopped: {}", e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * A failure to accept one connection, e.g. because no file descriptor is left or the peer already aborted the
+     * connection, pauses accepting for {@link #ACCEPT_BACKOFF} ms. The listener keeps serving the open connections.
+     *
+     * @throws IOException only if the server socket was closed
+     */
+    private void accept(SelectionKey key) throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!serverChannel.isOpen()) {
+                    throw e;
+                }
+                logger.warn("Accepting a callback connection failed: {}", e.getMessage());
+                key.interestOps(0);
+                acceptPausedUntil = System.currentTimeMillis() + ACCEPT_BACKOFF;
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new Connection(System.currentTimeMillis()));
+                logger.trace("Accepted callback connection from {}", channel.socket().getRemoteSocketAddress());
+            } catch (IOException e) {
+                logger.debug("Could not register callback connection: {}", e.getMessage());
+                try {
+                    channel.close();
+                } catch (IOException closeFailed) {
+                    logger.trace("Closing callback connection failed: {}", closeFailed.getMessage());
+                }
+            }
+        }
+    }
+
+    private void resumeAccept() {
+        if (acceptPausedUntil == 0 || System.currentTimeMillis() < acceptPausedUntil) {
+            return;
+        }
+
+        acceptPausedUntil = 0;
+        SelectionKey key = serverChannel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void receive(DatagramChannel channel) {
+        while (true) {
+            datagramBuffer.clear();
+            try {
+                if (channel.receive(datagramBuffer) == null) {
+                    return;
+                }
+            } catch (IOException e) {
+                logger.debug("Receiving callback datagram failed: {}", e.getMessage());
+                return;
+            }
+
+            int length = datagramBuffer.position();
+            if (length > 0 && datagramBuffer.get(length - 1) == '\n') {
+                length--;
+            }
+
+            if (length > CallbackFrame.MAX_FRAME_LENGTH) {
+                logger.warn("Callback datagram exceeded {} bytes - dropped", CallbackFrame.MAX_FRAME_LENGTH);
+                continue;
+            }
+
+            if (!CallbackFrameParser.parse(datagramBuffer.array(), 0, length, frame)) {
+                logger.warn("Ignoring malformed callback datagram '{}'",
+                        new String(datagramBuffer.array(), 0, length, StandardCharsets.UTF_8));
+                continue;
+            }
+
+            if (!TOPIC_KEEPALIVE.equals(frame.getTopic()) && frameHandler.accepts(frame) && inSequence()) {
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * @return false if the datagram arrived late or belongs to an older boot of the device and must be dropped
+     */
+    private boolean inSequence() {
+        long seq = frame.getLong(SEQ, -1);
+        long bootid = frame.getLong(BOOTID, -1);
+        if (seq < 0 && bootid < 0) {
+            // Ohne Sequenznummer kann weder Verlust noch Reihenfolge geprüft werden
+            return true;
+        }
+
+        String device = frame.get(IDENTIFIER);
+        if (device == null) {
+            return true;
+        }
+
+        switch (sequences.check(device, bootid, seq)) {
+            case GAP:
+                logger.debug("Lost datagram events of {} before sequence number {}", device, seq);
+                return true;
+            case LATE:
+                logger.debug("Dropping late datagram event of {} with bootid {} and sequence number {}", device,
+                        bootid, seq);
+                return false;
+            case RESTARTED:
+                logger.debug("Device {} restarted its sequence numbers at {}", device, seq);
+                return true;
+            case REBOOTED:
+                logger.debug("Device {} rebooted with bootid {}", device, bootid);
+                return true;
+            case IN_ORDER:
+            default:
+                return true;
+        }
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        int read;
+        try {
+            read = channel.read(connection.buffer);
+        } catch (IOException e) {
+            logger.debug("Reading callback connection failed: {}", e.getMessage());
+            close(key);
+            return;
+        }
+
+        connection.lastActivity = System.currentTimeMillis();
+
+        if (read > 0 && extractFrames(key, connection)) {
+            return;
+        }
+
+        if (read < 0) {
+            /*
+             * Ältere Devices schließen die Verbindung ohne einen Zeilenumbruch zu senden. Was noch im Buffer liegt
+             * ist dann die komplette Nachricht.
+             */
+            if (connection.buffer.position() > 0) {
+                processFrame(key, connection, 0, connection.buffer.position());
+            }
+            close(key);
+        } else if (!connection.buffer.hasRemaining()) {
+            logger.warn("Callback frame exceeded {} bytes - closing connection", CallbackFrame.MAX_FRAME_LENGTH);
+            close(key);
+        }
+    }
+
+    /**
+     * Dispatches all complete frames in the connection buffer and keeps a trailing partial frame for the next read.
+     *
+     * @return true if the connection was closed
+     */
+    private boolean extractFrames(SelectionKey key, Connection connection) {
+        ByteBuffer buffer = connection.buffer;
+        buffer.flip();
+
+        int start = 0;
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                processFrame(key, connection, start, i);
+                start = i + 1;
+
+                if (connection.device == null) {
+                    // Ein Event pro Verbindung, genau wie beim blockierenden Listener
+                    close(key);
+                    return true;
+                }
+            }
+        }
+
+        buffer.position(start);
+        buffer.compact();
+        return false;
+    }
+
+    private void processFrame(SelectionKey key, Connection connection, int start, int end) {
+        if (!CallbackFrameParser.parse(connection.buffer.array(), start, end - start, frame)) {
+            logger.warn("Ignoring malformed callback frame '{}'",
+                    new String(connection.buffer.array(), start, end - start, StandardCharsets.UTF_8));
+            return;
+        }
+
+        String topic = frame.getTopic();
+        if (connection.device == null && TOPIC_STREAM_HELLO.equals(topic)) {
+            openStream(key, connection);
+        } else if (connection.device != null && TOPIC_KEEPALIVE.equals(topic)) {
+            logger.trace("Keepalive from {}", connection.device);
+        } else if (frameHandler.accepts(frame)) {
+            dispatch();
+        }
+    }
+
+    /**
+     * Turns the connection into a persistent stream of the device named in the hello frame. An older stream of the
+     * same device is half open at best, so it gets closed.
+     */
+    private void openStream(SelectionKey key, Connection connection) {
+        String device = frame.get(IDENTIFIER);
+        if (device == null || device.isEmpty()) {
+            logger.debug("Hello frame without identifier: {}", frame);
+            return;
+        }
+
+        connection.device = device;
+        SelectionKey previous = streams.put(device, key);
+        if (previous != null && previous != key) {
+            logger.debug("Device {} reconnected its callback stream - closing the old one", device);
+            close(previous);
+        }
+        logger.debug("Opened persistent callback stream for {}", device);
+    }
+
+    private void dispatch() {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Received: {}", frame);
+        }
+
+        try {
+            frameHandler.onFrame(frame);
+        } catch (RuntimeException e) {
+            // Ein fehlerhaftes Event darf den Listener nicht beenden
+            logger.warn("Could not process callback frame '{}': {}", frame, e.toString());
+        }
+    }
+
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (!(attachment instanceof Connection)) {
+                continue;
+            }
+
+            Connection connection = (Connection) attachment;
+            long timeout = connection.device == null ? readTimeout : streamIdleTimeout;
+            if (now - connection.lastActivity > timeout) {
+                logger.debug("Closing callback connection after {} ms without data", timeout);
+                close(key);
+            }
+        }
+    }
+
+    private void close(SelectionKey key) {
+        Object attachment = key.attachment();
+        if (attachment instanceof Connection) {
+            String device = ((Connection) attachment).device;
+            if (device != null && streams.get(device) == key) {
+                streams.remove(device);
+            }
+        }
+
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.trace("Closing callback connection failed: {}", e.getMessage());
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            logger.trace("Closing callback socket failed: {}", e.getMessage());
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.trace("Closing selector failed: {}", e.getMessage());
+        }
+    }
+}
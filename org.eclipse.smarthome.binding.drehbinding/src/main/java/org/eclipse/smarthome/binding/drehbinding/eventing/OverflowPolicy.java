@@ -0,0 +1,32 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+/**
+ * What the {@link EventRingBuffer} does with a new event when it is full.
+ *
+ * @author Tristan
+ *
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Overwrite the oldest queued event
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discard the new event
+     */
+    DROP_NEWEST,
+
+    /**
+     * Replace the newest queued event of the same device and topic. If there is none the oldest event is dropped.
+     * The new event is delivered at the position of the replaced one, ahead of events that arrived in between.
+     */
+    COALESCE_PER_DEVICE,
+
+    /**
+     * Let the ingestion wait until a delivery worker made room
+     */
+    BLOCK
+
+}
@@ -0,0 +1,221 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retries failed subscriptions and unsubscriptions of all devices on one {@link TimerWheel}.
+ *
+ * The delay doubles with every attempt, starting at {@code baseDelay} and capped at {@code maxDelay}. Half of it is
+ * random, so knobs that lost the Wi-Fi together don't come back at the same moment. Every device has a budget of
+ * {@code maxAttempts} retries, which is refilled by the next successful subscription. Topics failing while a retry of
+ * the same kind is pending join that retry instead of using up another attempt.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class RetryScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+
+    /**
+     * Ticks are short compared to the delays, a retry is at most this late
+     */
+    private static final long TICK = 100;
+    private static final int BUCKETS = 512;
+
+    public enum Kind {
+        SUBSCRIBE,
+        UNSUBSCRIBE
+    }
+
+    private static class Pending {
+        final Set<String> topics = new LinkedHashSet<>();
+        TimerWheel.Timeout timeout;
+    }
+
+    private static class Device {
+        int attempts = 0;
+        final Map<Kind, Pending> pending = new EnumMap<>(Kind.class);
+    }
+
+    private final TimerWheel wheel;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int maxAttempts;
+
+    // Geschützt durch sich selbst
+    private final Map<Subscriber, Device> devices = new HashMap<>();
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * @param name name of the timer thread
+     * @param baseDelay delay in ms before the first retry
+     * @param maxDelay longest delay in ms between two retries
+     * @param maxAttempts retries per device until the next success
+     */
+    public RetryScheduler(String name, long baseDelay, long maxDelay, int maxAttempts) {
+        this.wheel = new TimerWheel(name, TICK, BUCKETS);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void start() {
+        wheel.start();
+    }
+
+    public void shutdown() {
+        wheel.shutdown();
+        synchronized (devices) {
+            devices.clear();
+        }
+    }
+
+    /**
+     * Schedules a retry for the topic. The action runs on the timer thread and must not block.
+     *
+     * @param action gets all topics of the retry
+     * @return false if the budget of the device is used up, nothing was scheduled then
+     */
+    public boolean schedule(Subscriber subscriber, Kind kind, String topic, Consumer<Collection<String>> action) {
+        synchronized (devices) {
+            Device device = devices.computeIfAbsent(subscriber, s -> new Device());
+            Pending pending = device.pending.get(kind);
+            if (pending != null) {
+                pending.topics.add(topic);
+                return true;
+            }
+
+            if (device.attempts >= maxAttempts) {
+                exhausted.incrementAndGet();
+                logger.debug("No retries left for {}", subscriber.getIdentifier());
+                return false;
+            }
+
+            long delay = delay(++device.attempts);
+            logger.debug("Retrying {} of {} for {} in {} ms, attempt {} of {}", kind, topic,
+                    subscriber.getIdentifier(), delay, device.attempts, maxAttempts);
+
+            Pending retry = new Pending();
+            retry.topics.add(topic);
+            retry.timeout = wheel.schedule(() -> fire(subscriber, kind, retry, action), delay);
+            device.pending.put(kind, retry);
+            scheduled.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Refills the budget of the device
+     */
+    public void succeeded(Subscriber subscriber) {
+        synchronized (devices) {
+            Device device = devices.get(subscriber);
+            if (device == null) {
+                return;
+            }
+
+            device.attempts = 0;
+            if (device.pending.isEmpty()) {
+                devices.remove(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Drops all pending retries of the device and refills its budget
+     */
+    public void cancel(Subscriber subscriber) {
+        synchronized (devices) {
+            Device device = devices.remove(subscriber);
+            if (device != null) {
+                for (Pending pending : device.pending.values()) {
+                    pending.timeout.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if a retry of the device is scheduled
+     */
+    public boolean isPending(Subscriber subscriber) {
+        synchronized (devices) {
+            Device device = devices.get(subscriber);
+            return device != null && !device.pending.isEmpty();
+        }
+    }
+
+    private void fire(Subscriber subscriber, Kind kind, Pending retry, Consumer<Collection<String>> action) {
+        Set<String> topics;
+        synchronized (devices) {
+            Device device = devices.get(subscriber);
+            // Ist in der Zwischenzeit abgebrochen worden
+            if (device == null || device.pending.get(kind) != retry) {
+                return;
+            }
+
+            device.pending.remove(kind);
+            topics = new LinkedHashSet<>(retry.topics);
+        }
+
+        action.accept(topics);
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half of the delay is fixed, the other half random
+     */
+    long delay(int attempt) {
+        long delay = maxDelay;
+        if (attempt < 31) {
+            delay = Math.min(maxDelay, baseDelay << (attempt - 1));
+        }
+
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    /**
+     * @return number of devices with a pending retry
+     */
+    public int getPending() {
+        synchronized (devices) {
+            int pending = 0;
+            for (Device device : devices.values()) {
+                if (!device.pending.isEmpty()) {
+                    pending++;
+                }
+            }
+            return pending;
+        }
+    }
+
+    /**
+     * @return number of retries scheduled since the start of the binding
+     */
+    public long getScheduled() {
+        return scheduled.get();
+    }
+
+    /**
+     * @return number of failures that weren't retried because the budget was used up
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,122 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the last sequence number of every device that sends its events as datagrams. Datagrams can get lost or
+ * overtake each other, the sequence number the device puts into every event makes both visible.
+ *
+ * An event with a number lower than or equal to the last one is late or a duplicate and must be dropped, otherwise
+ * the gestures would be delivered in the wrong order. A gap is counted as lost events, the event itself is
+ * delivered. A number far below the last one means the device restarted its counter and is accepted.
+ *
+ * Devices that send their {@code bootid} with every event restart the counter with every boot. Events of an older
+ * boot than the last one seen are dropped as late, the first event of a newer boot starts a new sequence.
+ *
+ * Is NOT ThreadSafe, only the counters may be read from other threads
+ *
+ * @author Tristan
+ *
+ */
+public class SequenceTracker {
+
+    /**
+     * A late event is at most this far behind the last one. Anything further behind is a restarted counter.
+     */
+    static final long REORDER_WINDOW = 1024;
+
+    public enum Result {
+        IN_ORDER,
+        GAP,
+        LATE,
+        RESTARTED,
+        REBOOTED
+    }
+
+    private static class Sequence {
+        long bootid;
+        long last;
+
+        Sequence(long bootid, long last) {
+            this.bootid = bootid;
+            this.last = last;
+        }
+    }
+
+    private final Map<String, Sequence> sequences = new HashMap<>();
+
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+
+    /**
+     * Checks boot and sequence number of an event and remembers them if the event is to be delivered.
+     *
+     * @param identifier device that sent the event
+     * @param bootid boot of the device, -1 if unknown
+     * @param seq sequence number of the event, -1 if unknown
+     * @return {@link Result#LATE} if the event must be dropped
+     */
+    public Result check(String identifier, long bootid, long seq) {
+        Sequence sequence = sequences.get(identifier);
+        if (sequence == null) {
+            sequences.put(identifier, new Sequence(bootid, seq));
+            return Result.IN_ORDER;
+        }
+
+        if (bootid >= 0 && bootid != sequence.bootid) {
+            if (bootid < sequence.bootid) {
+                late.incrementAndGet();
+                return Result.LATE;
+            }
+
+            sequence.bootid = bootid;
+            sequence.last = seq;
+            return Result.REBOOTED;
+        }
+
+        if (seq < 0) {
+            return Result.IN_ORDER;
+        }
+
+        if (sequence.last < 0) {
+            sequence.last = seq;
+            return Result.IN_ORDER;
+        }
+
+        long expected = sequence.last + 1;
+        if (seq == expected) {
+            sequence.last = seq;
+            return Result.IN_ORDER;
+        }
+
+        if (seq > expected) {
+            lost.addAndGet(seq - expected);
+            sequence.last = seq;
+            return Result.GAP;
+        }
+
+        if (sequence.last - seq < REORDER_WINDOW) {
+            late.incrementAndGet();
+            return Result.LATE;
+        }
+
+        sequence.last = seq;
+        return Result.RESTARTED;
+    }
+
+    /**
+     * @return number of events that never arrived
+     */
+    public long getLost() {
+        return lost.get();
+    }
+
+    /**
+     * @return number of events dropped because they arrived late or twice
+     */
+    public long getLate() {
+        return late.get();
+    }
+}
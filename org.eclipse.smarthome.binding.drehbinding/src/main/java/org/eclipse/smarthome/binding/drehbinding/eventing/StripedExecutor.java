@@ -0,0 +1,213 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers events and subscription callbacks on a fixed number of lanes. The device identifier decides the lane,
+ * so everything concerning one device happens one after another on the same thread and in the order it arrived,
+ * while different devices are served in parallel.
+ *
+ * Each lane has its own {@link EventRingBuffer} for events and a queue for other tasks. Tasks are run before the
+ * next event is taken.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class StripedExecutor {
+
+    private final Logger logger = LoggerFactory.getLogger(StripedExecutor.class);
+
+    /**
+     * Time in ms a lane waits for work before it checks for shutdown
+     */
+    private static final long POLL_INTERVAL = 1000;
+
+    private final String name;
+    private final Lane[] lanes;
+    private final CallbackFrameHandler deliverer;
+
+    private ExecutorService workers;
+
+    private volatile boolean shutdown = false;
+
+    private class Lane implements Runnable {
+
+        final EventRingBuffer events;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        Lane(int capacity, OverflowPolicy overflowPolicy) {
+            events = new EventRingBuffer(capacity, overflowPolicy);
+        }
+
+        @Override
+        public void run() {
+            CallbackFrame frame = new CallbackFrame();
+
+            try {
+                while (!shutdown) {
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        runSafely(task);
+                    }
+
+                    if (events.take(frame, POLL_INTERVAL)) {
+                        deliver(frame);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @param name name of the lane threads
+     * @param laneCount number of lanes, each one gets its own thread
+     * @param capacity capacity of the event buffer of each lane
+     * @param overflowPolicy
+     * @param deliverer called on the lane thread for every event
+     */
+    public StripedExecutor(String name, int laneCount, int capacity, OverflowPolicy overflowPolicy,
+            CallbackFrameHandler deliverer) {
+        this.name = name;
+        this.deliverer = deliverer;
+
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(capacity, overflowPolicy);
+        }
+    }
+
+    /**
+     * Starts one thread per lane
+     */
+    public synchronized void start() {
+        if (workers != null) {
+            return;
+        }
+
+        workers = Executors.newFixedThreadPool(lanes.length, new NamedThreadFactory(name));
+        for (Lane lane : lanes) {
+            workers.execute(lane);
+        }
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        for (Lane lane : lanes) {
+            // Gibt auch den Listener frei, falls er bei BLOCK auf Platz wartet
+            lane.events.shutdown();
+        }
+
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Queues the event on the lane of the device that sent it. Events without identifier go to the first lane.
+     *
+     * @param frame the event, may be reused by the caller afterwards
+     * @return false if the event was dropped or the executor was shut down
+     * @throws InterruptedException
+     */
+    public boolean publish(CallbackFrame frame) throws InterruptedException {
+        return lanes[laneOf(frame.valueHash(IDENTIFIER))].events.publish(frame);
+    }
+
+    /**
+     * Runs the task on the lane of the device, so it never runs at the same time as the delivery of an event of
+     * that device. The task is run before the events still waiting on the lane.
+     */
+    public void execute(String identifier, Runnable task) {
+        Lane lane = lanes[laneOf(hash(identifier))];
+        lane.tasks.add(task);
+        lane.events.wakeUp();
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return number of events waiting on all lanes
+     */
+    public int getDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.events.getDepth();
+        }
+
+        return depth;
+    }
+
+    /**
+     * @return number of events dropped on all lanes
+     */
+    public long getDropped() {
+        long dropped = 0;
+        for (Lane lane : lanes) {
+            dropped += lane.events.getDropped();
+        }
+
+        return dropped;
+    }
+
+    /**
+     * @return number of events coalesced on all lanes
+     */
+    public long getCoalesced() {
+        long coalesced = 0;
+        for (Lane lane : lanes) {
+            coalesced += lane.events.getCoalesced();
+        }
+
+        return coalesced;
+    }
+
+    /**
+     * Hash of the identifier over its UTF-8 bytes, matching {@link CallbackFrame#valueHash(String)}
+     */
+    static int hash(String identifier) {
+        int hash = 0;
+        if (identifier != null) {
+            for (byte b : identifier.getBytes(StandardCharsets.UTF_8)) {
+                hash = 31 * hash + b;
+            }
+        }
+
+        return hash;
+    }
+
+    private int laneOf(int hash) {
+        return (hash & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    private void deliver(CallbackFrame frame) {
+        try {
+            deliverer.onFrame(frame);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to deliver event {}: {}", frame, e.toString());
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.warn("Task on delivery lane failed: {}", e.toString());
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package org.eclipse.smarthome.binding.drehbinding.eventing;
 
-import java.util.Map;
-
 import org.eclipse.jdt.annotation.NonNull;
 
 public interface Subscriber {
 
     public String getIdentifier();
 
+    /**
+     * Sent to the device with every subscription, see {@link EventFilter}
+     *
+     * @return the events the subscriber needs, {@link EventFilter#ALL} by default
+     */
+    public default EventFilter getEventFilter() {
+        return EventFilter.ALL;
+    }
+
     public void onFullSuccessfulSubscription(@NonNull String topic);
 
     public void onFullSuccessfullUnsubscription(@NonNull String topic);
 
-    public void onSubcriptionEvent(@NonNull String topic, @NonNull Map<String, String> values);
+    /**
+     * Called for every event of a subscribed topic
+     *
+     * @param topic
+     * @param values fields of the event, only valid during this call
+     */
+    public void onSubcriptionEvent(@NonNull String topic, @NonNull CallbackFrame values);
 
     /**
      * The device didn't receivce the subscription but the subscription
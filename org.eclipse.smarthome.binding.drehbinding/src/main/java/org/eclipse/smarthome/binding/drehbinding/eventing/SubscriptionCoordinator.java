@@ -0,0 +1,338 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queues the subscription work of all handlers, so a restart of openHAB doesn't send every knob its subscription at
+ * the same moment. At most {@code concurrency} devices are subscribed at once, the rest waits in the queue.
+ *
+ * Devices that are already in the jUPnP registry go first. Devices that weren't discovered yet are queued anyway,
+ * most of them kept running while openHAB restarted, but they are only subscribed once the known ones are done. A
+ * device that is queued again, e.g. because it was discovered in the meantime, keeps its place and merges its topics.
+ *
+ * A job that is cancelled while it runs can't be stopped anymore. Once it completes, what it subscribed is removed
+ * again, unless the subscriber queued a new job in the meantime.
+ *
+ * The work done since the queue was last empty is a round. When a round ends, its duration and results are logged.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class SubscriptionCoordinator {
+
+    private final Logger logger = LoggerFactory.getLogger(SubscriptionCoordinator.class);
+
+    private static class Job implements Comparable<Job> {
+        final Subscriber subscriber;
+        final Set<String> topics = new LinkedHashSet<>();
+        final long bootid;
+        final long order;
+        final CompletableFuture<Map<String, Boolean>> result = new CompletableFuture<>();
+        boolean present;
+        boolean cancelled;
+        boolean superseded;
+
+        Job(Subscriber subscriber, long bootid, boolean present, long order) {
+            this.subscriber = subscriber;
+            this.bootid = bootid;
+            this.present = present;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (present != other.present) {
+                return present ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+
+    private final SubscriptionService subscriptionService;
+    private final int concurrency;
+
+    private final Object lock = new Object();
+
+    // Geschützt durch lock
+    private final PriorityQueue<Job> queue = new PriorityQueue<>();
+    private final Map<Subscriber, Job> queued = new HashMap<>();
+    private final Set<Job> running = new HashSet<>();
+    private int inFlight = 0;
+    private boolean draining = false;
+    private long order = 0;
+    private boolean inRound = false;
+    private long roundStart;
+    private int roundDevices = 0;
+    private int roundFailed = 0;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param subscriptionService does the subscriptions
+     * @param concurrency maximum number of devices subscribed at once
+     */
+    public SubscriptionCoordinator(SubscriptionService subscriptionService, int concurrency) {
+        this.subscriptionService = subscriptionService;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Queues the subscription of the topics. The subscriber callbacks are called like for
+     * {@link SubscriptionService#subscribeAsync(Subscriber, Collection, long)}.
+     *
+     * @param present true if the device is in the jUPnP registry
+     * @return completes with topic -> true if the device accepted the subscription, cancelled if the job was
+     *         cancelled before it started
+     */
+    public CompletableFuture<Map<String, Boolean>> submit(Subscriber subscriber, Collection<String> topics,
+            long bootid, boolean present) {
+        Job job;
+        Job replaced = null;
+        synchronized (lock) {
+            for (Job started : running) {
+                if (started.subscriber == subscriber && started.cancelled) {
+                    // Was der abgebrochene Job subscribed, gehört jetzt dem neuen
+                    started.superseded = true;
+                }
+            }
+
+            job = queued.get(subscriber);
+            if (job != null && job.bootid == bootid) {
+                job.topics.addAll(topics);
+                if (present && !job.present) {
+                    // Neu einsortieren, die Queue merkt nichts von der geänderten Priorität
+                    queue.remove(job);
+                    job.present = true;
+                    queue.add(job);
+                }
+            } else {
+                if (job != null) {
+                    // Eine neue Bootid macht die alte Subscription überflüssig
+                    replaced = removeQueued(job);
+                }
+
+                job = new Job(subscriber, bootid, present, order++);
+                job.topics.addAll(topics);
+                queue.add(job);
+                queued.put(subscriber, job);
+                submitted.incrementAndGet();
+                if (!inRound) {
+                    inRound = true;
+                    roundStart = System.nanoTime();
+                }
+            }
+        }
+
+        if (replaced != null) {
+            replaced.result.cancel(false);
+        }
+
+        drain();
+        return job.result;
+    }
+
+    /**
+     * Removes the queued job of the subscriber. A job that already started completes as cancelled, and what it
+     * subscribed is removed again.
+     */
+    public void cancel(Subscriber subscriber) {
+        Job job;
+        synchronized (lock) {
+            for (Job started : running) {
+                if (started.subscriber == subscriber) {
+                    started.cancelled = true;
+                }
+            }
+
+            job = queued.get(subscriber);
+            if (job == null) {
+                return;
+            }
+            removeQueued(job);
+            endRoundIfIdle();
+        }
+
+        job.result.cancel(false);
+    }
+
+    // Nur mit lock aufrufen
+    private Job removeQueued(Job job) {
+        queue.remove(job);
+        queued.remove(job.subscriber);
+        return job;
+    }
+
+    /*
+     * Eine Subscription, die sofort fertig ist, ruft drain aus start heraus wieder auf. Statt zu rekursieren, macht
+     * die Schleife weiter, die schon läuft.
+     */
+    private void drain() {
+        synchronized (lock) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+
+        while (true) {
+            Job job;
+            synchronized (lock) {
+                if (inFlight >= concurrency || queue.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+
+                job = queue.poll();
+                queued.remove(job.subscriber);
+                running.add(job);
+                inFlight++;
+            }
+
+            try {
+                start(job);
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    draining = false;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void start(Job job) {
+        subscriptionService.subscribeAsync(job.subscriber, job.topics, job.bootid).whenComplete((results, e) -> {
+            boolean successful = e == null && !results.containsValue(false);
+            completed.incrementAndGet();
+            if (!successful) {
+                failed.incrementAndGet();
+            }
+
+            boolean cancelled;
+            boolean superseded;
+            synchronized (lock) {
+                running.remove(job);
+                cancelled = job.cancelled;
+                superseded = job.superseded;
+                inFlight--;
+                roundDevices++;
+                if (!successful) {
+                    roundFailed++;
+                }
+                logger.debug("Subscription of {} done, successful: {} ({} queued, {} in flight)",
+                        job.subscriber.getIdentifier(), successful, queue.size(), inFlight);
+                endRoundIfIdle();
+            }
+
+            if (cancelled) {
+                if (!superseded) {
+                    undo(job, results);
+                }
+                job.result.cancel(false);
+            } else if (e != null) {
+                job.result.completeExceptionally(e);
+            } else {
+                job.result.complete(results);
+            }
+            drain();
+        });
+    }
+
+    /**
+     * Removes the subscriptions of a job that was cancelled while it ran, on the device as well if it accepted them
+     */
+    private void undo(Job job, Map<String, Boolean> results) {
+        List<String> accepted = new ArrayList<>();
+        for (String topic : job.topics) {
+            if (results != null && Boolean.TRUE.equals(results.get(topic))) {
+                accepted.add(topic);
+            } else {
+                subscriptionService.removeSubscription(job.subscriber, topic);
+            }
+        }
+        if (!accepted.isEmpty()) {
+            logger.debug("Subscription of {} was cancelled, unsubscribing {}", job.subscriber.getIdentifier(),
+                    accepted);
+            subscriptionService.unsubscribeAsync(job.subscriber, accepted, job.bootid);
+        }
+    }
+
+    // Nur mit lock aufrufen
+    private void endRoundIfIdle() {
+        if (!inRound || inFlight > 0 || !queue.isEmpty()) {
+            return;
+        }
+
+        if (roundDevices > 0) {
+            long millis = (System.nanoTime() - roundStart) / 1000000L;
+            logger.info("Subscribed {} devices in {} ms, {} failed", roundDevices, millis, roundFailed);
+        }
+        inRound = false;
+        roundDevices = 0;
+        roundFailed = 0;
+    }
+
+    /**
+     * @return true if a subscription of the subscriber waits in the queue
+     */
+    public boolean isQueued(Subscriber subscriber) {
+        synchronized (lock) {
+            return queued.containsKey(subscriber);
+        }
+    }
+
+    /**
+     * @return number of devices waiting for their subscription
+     */
+    public int getQueued() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * @return number of devices being subscribed right now
+     */
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    /**
+     * @return number of jobs queued since the start of the binding, merged jobs count once
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * @return number of devices whose subscription finished
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return number of devices that didn't accept the subscription of at least one topic
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+}
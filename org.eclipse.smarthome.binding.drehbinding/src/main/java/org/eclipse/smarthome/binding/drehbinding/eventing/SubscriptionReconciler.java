@@ -0,0 +1,141 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the subscriptions of every registered device with the local ones once per interval, see
+ * {@link SubscriptionService#reconcileAsync(Subscriber, long)}. The first run of each device is at a random point
+ * within the first interval, so the devices aren't all asked at the same moment.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class SubscriptionReconciler {
+
+    private final Logger logger = LoggerFactory.getLogger(SubscriptionReconciler.class);
+
+    private static class Device {
+        final long bootid;
+        final AtomicBoolean running = new AtomicBoolean();
+        ScheduledFuture<?> schedule;
+
+        Device(long bootid) {
+            this.bootid = bootid;
+        }
+    }
+
+    private final String name;
+    private final long interval;
+    private final SubscriptionService subscriptionService;
+
+    // Geschützt durch sich selbst
+    private final Map<Subscriber, Device> devices = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong runs = new AtomicLong();
+
+    /**
+     * @param name name of the scheduler thread
+     * @param interval time in ms between two reconciliations of a device, 0 disables them
+     * @param subscriptionService
+     */
+    public SubscriptionReconciler(String name, long interval, SubscriptionService subscriptionService) {
+        this.name = name;
+        this.interval = interval;
+        this.subscriptionService = subscriptionService;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null || interval <= 0) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name));
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        synchronized (devices) {
+            devices.clear();
+        }
+    }
+
+    /**
+     * Reconciles the subscriptions of the device once per interval until it is unregistered
+     */
+    public synchronized void register(Subscriber subscriber, long bootid) {
+        if (scheduler == null) {
+            return;
+        }
+
+        Device device = new Device(bootid);
+        long delay = ThreadLocalRandom.current().nextLong(interval) + 1;
+        synchronized (devices) {
+            Device previous = devices.put(subscriber, device);
+            if (previous != null) {
+                previous.schedule.cancel(false);
+            }
+            device.schedule = scheduler.scheduleWithFixedDelay(() -> reconcile(subscriber, device), delay, interval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void unregister(Subscriber subscriber) {
+        synchronized (devices) {
+            Device device = devices.remove(subscriber);
+            if (device != null) {
+                device.schedule.cancel(false);
+            }
+        }
+    }
+
+    private void reconcile(Subscriber subscriber, Device device) {
+        // Ein Device, das nicht antwortet, soll sich nicht mehrere Abgleiche gleichzeitig einhandeln
+        if (!device.running.compareAndSet(false, true)) {
+            return;
+        }
+
+        runs.incrementAndGet();
+        try {
+            subscriptionService.reconcileAsync(subscriber, device.bootid)
+                    .whenComplete((answered, e) -> device.running.set(false));
+        } catch (RuntimeException e) {
+            logger.warn("Reconciliation of {} failed: {}", subscriber.getIdentifier(), e.toString());
+            device.running.set(false);
+        }
+    }
+
+    /**
+     * @return number of registered devices
+     */
+    public int getDevices() {
+        synchronized (devices) {
+            return devices.size();
+        }
+    }
+
+    /**
+     * @return number of periodic reconciliations since the start of the binding
+     */
+    public long getRuns() {
+        return runs.get();
+    }
+}
@@ -0,0 +1,201 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Table of all local subscriptions, indexed by device identifier and topic and by topic alone.
+ *
+ * The table is an immutable snapshot behind an {@link AtomicReference}. Readers, above all the event dispatch, just
+ * read the current snapshot and never take a lock. Writers copy the parts they change and swap the snapshot
+ * atomically, retrying if another writer was faster. Subscriptions change rarely compared to events, so the copying
+ * is cheap overall.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class SubscriptionRegistry {
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    /**
+     * Array backed, immutable set of subscribers. Iterating {@link #subscribers} needs no copy.
+     */
+    public static final class SubscriberSet {
+
+        static final SubscriberSet EMPTY = new SubscriberSet(new Subscriber[0]);
+
+        private final Subscriber[] subscribers;
+
+        private SubscriberSet(Subscriber[] subscribers) {
+            this.subscribers = subscribers;
+        }
+
+        public int size() {
+            return subscribers.length;
+        }
+
+        public Subscriber get(int index) {
+            return subscribers[index];
+        }
+
+        public boolean contains(Subscriber subscriber) {
+            return indexOf(subscriber) >= 0;
+        }
+
+        private int indexOf(Subscriber subscriber) {
+            for (int i = 0; i < subscribers.length; i++) {
+                if (subscribers[i] == subscriber) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        private SubscriberSet with(Subscriber subscriber) {
+            Subscriber[] copy = Arrays.copyOf(subscribers, subscribers.length + 1);
+            copy[subscribers.length] = subscriber;
+            return new SubscriberSet(copy);
+        }
+
+        private SubscriberSet without(int index) {
+            Subscriber[] copy = new Subscriber[subscribers.length - 1];
+            System.arraycopy(subscribers, 0, copy, 0, index);
+            System.arraycopy(subscribers, index + 1, copy, index, copy.length - index);
+            return new SubscriberSet(copy);
+        }
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+        /**
+         * device identifier -> topic -> subscriber
+         */
+        final Map<String, Map<String, Subscriber>> byDevice;
+
+        /**
+         * topic -> subscribers, for events of devices that don't send their identifier
+         */
+        final Map<String, SubscriberSet> byTopic;
+
+        Snapshot(Map<String, Map<String, Subscriber>> byDevice, Map<String, SubscriberSet> byTopic) {
+            this.byDevice = byDevice;
+            this.byTopic = byTopic;
+        }
+    }
+
+    /**
+     * @return the subscriber of the device for the topic, null if there is none
+     */
+    public Subscriber get(String identifier, String topic) {
+        Map<String, Subscriber> topics = snapshot.get().byDevice.get(identifier);
+        return topics == null ? null : topics.get(topic);
+    }
+
+    /**
+     * @return all subscribers of the topic, never null
+     */
+    public SubscriberSet getAll(String topic) {
+        SubscriberSet subscribers = snapshot.get().byTopic.get(topic);
+        return subscribers == null ? SubscriberSet.EMPTY : subscribers;
+    }
+
+    /**
+     * @return all topics the device is subscribed to
+     */
+    public Set<String> getTopics(String identifier) {
+        Map<String, Subscriber> topics = snapshot.get().byDevice.get(identifier);
+        return topics == null ? Collections.emptySet() : topics.keySet();
+    }
+
+    public boolean contains(Subscriber subscriber, String topic) {
+        // Zwei Hash Lookups statt die Subscriber des Topics zu durchsuchen, der Handler fragt bei jeder Alive Message
+        if (get(subscriber.getIdentifier(), topic) == subscriber) {
+            return true;
+        }
+        return getAll(topic).contains(subscriber);
+    }
+
+    /**
+     * @return false if the subscriber was already subscribed to the topic
+     */
+    public boolean add(Subscriber subscriber, String topic) {
+        String identifier = subscriber.getIdentifier();
+
+        while (true) {
+            Snapshot current = snapshot.get();
+            SubscriberSet subscribers = current.byTopic.get(topic);
+            if (subscribers == null) {
+                subscribers = SubscriberSet.EMPTY;
+            }
+
+            if (subscribers.contains(subscriber)) {
+                return false;
+            }
+
+            Map<String, SubscriberSet> byTopic = new HashMap<>(current.byTopic);
+            byTopic.put(topic, subscribers.with(subscriber));
+
+            Map<String, Map<String, Subscriber>> byDevice = new HashMap<>(current.byDevice);
+            Map<String, Subscriber> topics = current.byDevice.get(identifier);
+            topics = topics == null ? new HashMap<>() : new HashMap<>(topics);
+            topics.put(topic, subscriber);
+            byDevice.put(identifier, Collections.unmodifiableMap(topics));
+
+            if (snapshot.compareAndSet(current, new Snapshot(Collections.unmodifiableMap(byDevice),
+                    Collections.unmodifiableMap(byTopic)))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return false if the subscriber wasn't subscribed to the topic
+     */
+    public boolean remove(Subscriber subscriber, String topic) {
+        String identifier = subscriber.getIdentifier();
+
+        while (true) {
+            Snapshot current = snapshot.get();
+            SubscriberSet subscribers = current.byTopic.get(topic);
+            int index = subscribers == null ? -1 : subscribers.indexOf(subscriber);
+            if (index < 0) {
+                return false;
+            }
+
+            Map<String, SubscriberSet> byTopic = new HashMap<>(current.byTopic);
+            if (subscribers.size() == 1) {
+                byTopic.remove(topic);
+            } else {
+                byTopic.put(topic, subscribers.without(index));
+            }
+
+            Map<String, Map<String, Subscriber>> byDevice = current.byDevice;
+            Map<String, Subscriber> topics = current.byDevice.get(identifier);
+            if (topics != null && topics.get(topic) == subscriber) {
+                byDevice = new HashMap<>(current.byDevice);
+                if (topics.size() == 1) {
+                    byDevice.remove(identifier);
+                } else {
+                    topics = new HashMap<>(topics);
+                    topics.remove(topic);
+                    byDevice.put(identifier, Collections.unmodifiableMap(topics));
+                }
+                byDevice = Collections.unmodifiableMap(byDevice);
+            }
+
+            if (snapshot.compareAndSet(current, new Snapshot(byDevice, Collections.unmodifiableMap(byTopic)))) {
+                return true;
+            }
+        }
+    }
+}
@@ -1,23 +1,99 @@
 package org.eclipse.smarthome.binding.drehbinding.eventing;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 public interface SubscriptionService {
 
     int getCallbackPort();
 
+    /**
+     * @return time in ms a persistent callback connection may stay silent before it is closed
+     */
+    long getStreamIdleTimeout();
+
+    /**
+     * @return transport the devices are asked to send their events with
+     */
+    String getTransport();
+
+    /**
+     * @return {@code <group>:<port>} the devices send their events to if the transport is multicast, null otherwise
+     */
+    String getMulticastGroup();
+
     void subscribe(Subscriber subscriber, String topic, long bootid);
 
+    /**
+     * Like {@link #subscribe(Subscriber, String, long)}, but the remote subscription is done on a background thread.
+     * The local subscription is in place when this method returns. The subscriber callbacks are called on completion.
+     *
+     * @return completes with true if the device accepted the subscription, false if it failed or the background
+     *         executor was overloaded
+     */
+    CompletableFuture<Boolean> subscribeAsync(Subscriber subscriber, String topic, long bootid);
+
+    /**
+     * Subscribes for all topics with a single request to the device. The subscriber callbacks are called per topic.
+     *
+     * @return topic -> true if the device accepted the subscription for the topic
+     */
+    Map<String, Boolean> subscribe(Subscriber subscriber, Collection<String> topics, long bootid);
+
+    /**
+     * Like {@link #subscribe(Subscriber, Collection, long)}, but the remote subscription is done on a background
+     * thread.
+     */
+    CompletableFuture<Map<String, Boolean>> subscribeAsync(Subscriber subscriber, Collection<String> topics,
+            long bootid);
+
     void onSuccessfulRemoteSubscription(Subscriber subscriber, String topic);
 
     void onFailedRemoteSubscription(Subscriber subscriber, String topic);
 
     void unsubscribe(Subscriber subscriber, String topic, long bootid);
 
+    /**
+     * Like {@link #unsubscribe(Subscriber, String, long)}, but the remote unsubscription is done on a background
+     * thread. The local subscription is removed when this method returns. The subscriber callbacks are called on
+     * completion.
+     *
+     * @return completes with true if the device removed the subscription
+     */
+    CompletableFuture<Boolean> unsubscribeAsync(Subscriber subscriber, String topic, long bootid);
+
+    /**
+     * Unsubscribes from all topics with a single request to the device. The subscriber callbacks are called per
+     * topic.
+     *
+     * @return topic -> true if the device removed the subscription for the topic
+     */
+    Map<String, Boolean> unsubscribe(Subscriber subscriber, Collection<String> topics, long bootid);
+
+    /**
+     * Like {@link #unsubscribe(Subscriber, Collection, long)}, but the remote unsubscription is done on a background
+     * thread.
+     */
+    CompletableFuture<Map<String, Boolean>> unsubscribeAsync(Subscriber subscriber, Collection<String> topics,
+            long bootid);
+
     void onSuccessfulRemoteSubscriptionRemoval(Subscriber subscriber, String topic);
 
     void onFailedRemoteSubscriptionRemoval(Subscriber subscriber, String topic);
 
     void removeSubscription(Subscriber subscriber, String topic);
 
+    /**
+     * Fetches the subscriptions the device holds for the subscriber and brings them in line with the local ones: local
+     * topics the device doesn't know are subscribed again, topics only the device knows are removed there. Both with
+     * one request each. The subscriber callbacks are only called for the topics subscribed again.
+     *
+     * @return completes with true if the device answered, false if it couldn't be asked or a subscription of the
+     *         subscriber is still pending
+     */
+    CompletableFuture<Boolean> reconcileAsync(Subscriber subscriber, long bootid);
+
     boolean doesSubscriptionExists(Subscriber subscriber, String topic);
 
 }
@@ -1,25 +1,36 @@
 package org.eclipse.smarthome.binding.drehbinding.eventing;
 
-import java.io.BufferedReader;
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConfiguration;
 import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTIOServiceImpl;
-import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.SubscriptionResult;
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Is ThreadSafe
+ * Is ThreadSafe. The dispatch of events never takes a lock, see {@link SubscriptionRegistry}.
  *
  * @author Tristan
  *
@@ -35,89 +46,268 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     private static SubscriptionServiceImpl instance;
 
     private static final String POOL_NAME = "DrehbindingSubscriptionPool";
+    private static final String DELIVERY_THREAD_NAME = "DrehbindingDelivery";
+
+    /**
+     * One thread per callback listener shard
+     */
     ExecutorService schedular;
 
-    private boolean shutdown = false;
+    private static final String SUBSCRIPTION_THREAD_NAME = "DrehbindingSubscription";
+
+    /**
+     * Runs the REST calls of the asynchronous subscriptions, so neither the jUPnP registry thread nor a handler
+     * waits for a device. Bounded, so an unreachable device can't pile up an endless backlog.
+     */
+    private final ThreadPoolExecutor subscriptionExecutor;
+
+    /**
+     * Queues the subscriptions of all handlers, see {@link SubscriptionCoordinator}
+     */
+    private final SubscriptionCoordinator coordinator;
+
+    /**
+     * Subscription requests currently sent, so the same subscription isn't sent twice at the same time
+     */
+    private final InFlightSubscriptions inFlight = new InFlightSubscriptions();
+
+    private static final String RETRY_THREAD_NAME = "DrehbindingRetry";
+
+    /**
+     * Retries failed subscriptions of all handlers, see {@link RetryScheduler}
+     */
+    private final RetryScheduler retries;
+
+    private static final String RECONCILE_THREAD_NAME = "DrehbindingReconcile";
+
+    /**
+     * Reconciles the subscriptions of all handlers with their devices, see {@link SubscriptionReconciler}
+     */
+    private final SubscriptionReconciler reconciler;
+
+    private static final String LEASE_THREAD_NAME = "DrehbindingLeases";
+
+    /**
+     * Renews the leases the devices grant, see {@link LeaseRenewer}
+     */
+    private final LeaseRenewer leases;
+
+    /**
+     * Time in ms a callback connection may stay silent before it is closed
+     */
+    private static final long READ_TIMEOUT = 5000;
+
+    /**
+     * Time in ms a persistent callback connection may stay silent before it is closed. Offered to the device on
+     * subscription, so it knows how often to send a keepalive.
+     */
+    private static final long STREAM_IDLE_TIMEOUT = 60000;
+
+    private static DrehbindingBindingConfiguration configuration = new DrehbindingBindingConfiguration();
+
+    /**
+     * Shards of the callback listener, all bound to callbackPort. Empty if the callback socket could not be opened.
+     */
+    private final List<NioCallbackListener> callbackListeners = new ArrayList<>();
     private int callbackPort = -1;
+    private String transport = TRANSPORT_TCP;
+
+    /**
+     * {@code <group>:<port>} if the multicast group was joined, null otherwise
+     */
+    private String multicastGroup = null;
+
+    private final SubscriptionRegistry subscriptions;
 
-    private final Lock shutdownLock;
-    private final Lock callbackPortLock;
+    /**
+     * Decouples the callback listener from the subscribers, so a slow updateState doesn't delay the next read. Events
+     * and subscription callbacks of one device are delivered in order on the same lane.
+     */
+    private final StripedExecutor delivery;
 
-    private final Map<String, List<Subscriber>> subscriptions;
+    /**
+     * bootid every subscriber sent with its subscriptions. The device puts it into every event, an event with another
+     * bootid belongs to a subscription that isn't ours or no longer exists.
+     */
+    private final Map<Subscriber, Long> bootids = new ConcurrentHashMap<>();
 
-    Runnable callbackListener = new Runnable() {
+    private final CallbackFrameHandler frameHandler = new CallbackFrameHandler() {
 
         @Override
-        public void run() {
-            ServerSocket callbackSocket = null;
-            Socket connection = null;
+        public boolean accepts(CallbackFrame frame) {
+            /*
+             * Über Multicast kommen auch Events von Devices an, die nur ein anderes openHAB abonniert hat. Die sollen
+             * gar nicht erst eine Lane belegen und auch nicht in die Sequenznummern des Devices eingehen.
+             */
+            String identifier = frame.get(IDENTIFIER);
+            if (identifier == null) {
+                return true;
+            }
+            if (subscriptions.getTopics(identifier).isEmpty()) {
+                logger.trace("No subscription of {} - ignoring event", identifier);
+                return false;
+            }
+
+            long bootid = frame.getLong(BOOTID, -1);
+            if (bootid < 0) {
+                // Ältere Devices senden die bootid nicht mit
+                return true;
+            }
+            Subscriber subscriber = subscriptions.get(identifier, frame.getTopic());
+            Long subscribed = subscriber == null ? null : bootids.get(subscriber);
+            if (subscribed != null && subscribed != bootid) {
+                logger.debug("Event of {} with bootid {} doesn't belong to our subscription with bootid {} - ignoring",
+                        identifier, bootid, subscribed);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void onFrame(CallbackFrame frame) {
             try {
-                callbackSocket = new ServerSocket(0);
-                callbackPortLock.lock();
-                callbackPort = callbackSocket.getLocalPort();
-                callbackPortLock.unlock();
-
-                shutdownLock.lock();
-                while (!shutdown) {
-                    shutdownLock.unlock();
-                    connection = callbackSocket.accept();
-                    BufferedReader inFromClient = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream()));
-                    String clientSentence = inFromClient.readLine();
-                    logger.trace("Received: " + clientSentence);
-                    connection.close();
-
-                    /*
-                     * Es kann vorkommen, dass bei einem Fehler auf der Deviceseite das Device trotzdem eine Null
-                     * Nachricht verschickt. Diese kann nicht verarbeitet werden und wird daher ignoriert.
-                     */
-                    if (clientSentence == null) {
-                        logger.warn("Received callback message was null - therefor ignoring it");
-                        shutdownLock.lock();
-                        continue;
-                    }
-
-                    String topic = decipherTopic(clientSentence);
-                    Map<String, String> values = decipherValues(clientSentence);
-                    notifyAllSubscriber(topic, values);
-
-                    // GGf delay timer = overflood protection
-                    shutdownLock.lock();
+                if (!delivery.publish(frame)) {
+                    logger.debug("Event queue is full or shut down - dropped event {}", frame);
                 }
-                shutdownLock.unlock();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    private final LeaseRenewer.Renewal renewal = new LeaseRenewer.Renewal() {
+
+        @Override
+        public CompletableFuture<?> renew(Subscriber subscriber, Collection<String> topics, long bootid) {
+            return runRemote(() -> renewRemoteSubscriptions(subscriber, topics, bootid),
+                    SubscriptionResult.unanswered(topics));
+        }
+
+        @Override
+        public void expired(Subscriber subscriber, String topic) {
+            // Das Device hat die Subscription inzwischen verworfen
+            onFailedRemoteSubscription(subscriber, topic);
+        }
+    };
+
+    private SubscriptionServiceImpl() {
+        subscriptions = new SubscriptionRegistry();
+        delivery = new StripedExecutor(DELIVERY_THREAD_NAME, configuration.deliveryThreads,
+                configuration.eventQueueCapacity, configuration.overflowPolicy, frame -> deliver(frame));
+        delivery.start();
+
+        subscriptionExecutor = new ThreadPoolExecutor(configuration.subscriptionThreads,
+                configuration.subscriptionThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(configuration.subscriptionQueueCapacity),
+                new NamedThreadFactory(SUBSCRIPTION_THREAD_NAME));
+        subscriptionExecutor.allowCoreThreadTimeOut(true);
+        coordinator = new SubscriptionCoordinator(this, configuration.subscriptionConcurrency);
+        retries = new RetryScheduler(RETRY_THREAD_NAME, configuration.retryBaseDelay, configuration.retryMaxDelay,
+                configuration.retryAttempts);
+        retries.start();
+        leases = new LeaseRenewer(LEASE_THREAD_NAME, TimeUnit.SECONDS.toMillis(configuration.leaseRenewWindow),
+                renewal);
+        leases.start();
+        reconciler = new SubscriptionReconciler(RECONCILE_THREAD_NAME,
+                TimeUnit.SECONDS.toMillis(configuration.reconcileInterval), this);
+        reconciler.start();
+
+        openCallbackListeners();
+        schedular = Executors.newFixedThreadPool(Math.max(1, callbackListeners.size()),
+                new NamedThreadFactory(POOL_NAME));
+
+        if (!callbackListeners.isEmpty()) {
+            callbackPort = callbackListeners.get(0).getLocalPort();
+            if (TRANSPORT_MULTICAST.equals(configuration.transport)) {
+                // Nur ein Shard tritt der Gruppe bei, sonst käme jedes Event mehrfach an
+                joinMulticastGroup(callbackListeners.get(0));
+            }
+
+            for (NioCallbackListener callbackListener : callbackListeners) {
+                schedular.execute(callbackListener);
+            }
+        }
+    }
+
+    private void openCallbackListeners() {
+        int shards = configuration.listenerShards;
+        if (shards > 1 && !NioCallbackListener.supportsReusePort()) {
+            logger.warn("SO_REUSEPORT is not supported on this platform - using a single callback listener");
+            shards = 1;
+        }
+
+        NioCallbackListener first;
+        try {
+            first = openCallbackListener(configuration.callbackPort, TRANSPORT_UDP.equals(configuration.transport),
+                    shards > 1);
+        } catch (IOException e) {
+            logger.error("Could not open the callback socket: {}", e.getMessage());
+            return;
+        }
+        callbackListeners.add(first);
+
+        for (int i = 1; i < shards; i++) {
+            try {
+                callbackListeners.add(new NioCallbackListener(first.getLocalPort(), READ_TIMEOUT, STREAM_IDLE_TIMEOUT,
+                        TRANSPORT_UDP.equals(transport), true, frameHandler));
             } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            } finally {
-                if (connection != null && !connection.isClosed()) {
-                    try {
-                        connection.close();
-                    } catch (IOException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
-                    }
-                }
+                logger.warn("Could only open {} of {} callback listener shards: {}", i, shards, e.getMessage());
+                break;
+            }
+        }
+    }
 
-                if (callbackSocket != null && !callbackSocket.isClosed()) {
-                    try {
-                        callbackSocket.close();
-                    } catch (IOException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
-                    }
+    private void joinMulticastGroup(NioCallbackListener callbackListener) {
+        try {
+            InetAddress group = InetAddress.getByName(configuration.multicastGroup);
+            NetworkInterface networkInterface = null;
+            if (configuration.multicastInterface != null) {
+                networkInterface = NetworkInterface.getByName(configuration.multicastInterface);
+                if (networkInterface == null) {
+                    throw new IOException("Unknown network interface " + configuration.multicastInterface);
                 }
             }
+
+            if (!group.isMulticastAddress()) {
+                throw new IOException(configuration.multicastGroup + " is not a multicast address");
+            }
+
+            callbackListener.joinGroup(group, configuration.multicastPort, networkInterface);
+            multicastGroup = group.getHostAddress() + ":" + configuration.multicastPort;
+            transport = TRANSPORT_MULTICAST;
+        } catch (IOException e) {
+            // Die Devices verbinden sich dann wie bisher direkt per TCP
+            logger.warn("Could not join multicast group {}, falling back to {}: {}", configuration.multicastGroup,
+                    transport, e.getMessage());
         }
-    };
+    }
 
-    private SubscriptionServiceImpl() {
-        callbackPortLock = new ReentrantLock();
-        shutdownLock = new ReentrantLock();
+    private NioCallbackListener openCallbackListener(int port, boolean datagrams, boolean reusePort)
+            throws IOException {
+        try {
+            NioCallbackListener listener = new NioCallbackListener(port, READ_TIMEOUT, STREAM_IDLE_TIMEOUT, datagrams,
+                    reusePort, frameHandler);
+            transport = datagrams ? TRANSPORT_UDP : TRANSPORT_TCP;
+            return listener;
+        } catch (IOException e) {
+            if (!datagrams) {
+                throw e;
+            }
 
-        schedular = ThreadPoolManager.getPool(POOL_NAME);
-        subscriptions = new HashMap<>();
+            // Ist der Port für UDP schon belegt, senden die Devices ihre Events eben weiterhin per TCP
+            logger.warn("Could not open the callback datagram socket, falling back to tcp: {}", e.getMessage());
+            return openCallbackListener(port, false, reusePort);
+        }
+    }
 
-        schedular.execute(callbackListener);
+    /**
+     * Sets the binding configuration used when the service is created. Changes after the creation of the service
+     * take effect after a restart of the binding.
+     *
+     * @param configuration
+     */
+    public static synchronized void configure(DrehbindingBindingConfiguration configuration) {
+        SubscriptionServiceImpl.configuration = configuration;
     }
 
     public static synchronized SubscriptionServiceImpl getInstance() {
@@ -128,55 +318,130 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         return SubscriptionServiceImpl.instance;
     }
 
+    /**
+     * Shuts the service down and forgets it, the next {@link #getInstance()} creates a new one with the configuration
+     * set by then. Called when the binding stops.
+     */
+    public static synchronized void reset() {
+        if (SubscriptionServiceImpl.instance != null) {
+            SubscriptionServiceImpl.instance.shutdown();
+            SubscriptionServiceImpl.instance = null;
+        }
+    }
+
     public void shutdown() {
-        shutdownLock.lock();
-        this.shutdown = true;
-        shutdownLock.unlock();
+        for (NioCallbackListener callbackListener : callbackListeners) {
+            callbackListener.shutdown();
+        }
+        schedular.shutdown();
+        subscriptionExecutor.shutdown();
+        retries.shutdown();
+        leases.shutdown();
+        reconciler.shutdown();
+        delivery.shutdown();
     }
 
-    private void notifyAllSubscriber(String topic, Map<String, String> values) {
-        List<Subscriber> allSubscriber;
+    /**
+     * @return the shards of the callback listener, for their datagram loss counters
+     */
+    public List<NioCallbackListener> getCallbackListeners() {
+        return Collections.unmodifiableList(callbackListeners);
+    }
 
-        synchronized (subscriptions) {
-            allSubscriber = subscriptions.get(topic);
-        }
+    /**
+     * @return the queue handlers subscribe through, for its progress counters
+     */
+    public SubscriptionCoordinator getCoordinator() {
+        return coordinator;
+    }
 
-        synchronized (allSubscriber) {
-            for (Subscriber subscriber : allSubscriber) {
-                subscriber.onSubcriptionEvent(topic, values);
+    /**
+     * @return the retries of failed subscriptions, for their counters
+     */
+    public RetryScheduler getRetryScheduler() {
+        return retries;
+    }
+
+    /**
+     * @return the leases of the subscriptions, for their counters
+     */
+    public LeaseRenewer getLeases() {
+        return leases;
+    }
+
+    /**
+     * @return the periodic reconciliation, handlers register their devices there
+     */
+    public SubscriptionReconciler getReconciler() {
+        return reconciler;
+    }
+
+    /**
+     * @return the delivery lanes, for their depth and drop counters
+     */
+    public StripedExecutor getDelivery() {
+        return delivery;
+    }
+
+    private void deliver(CallbackFrame frame) {
+        try {
+            String identifier = frame.get(IDENTIFIER);
+            if (identifier != null) {
+                notifySubscriber(identifier, frame.getTopic(), frame);
+            } else {
+                // Ältere Devices senden ihren Identifier nicht mit
+                notifyAllSubscriber(frame.getTopic(), frame);
             }
+        } catch (RuntimeException e) {
+            logger.warn("Subscriber failed to process event {}: {}", frame, e.toString());
+        }
+    }
+
+    /**
+     * Delivers the event to the one subscriber that owns the device and topic
+     */
+    private void notifySubscriber(String identifier, String topic, CallbackFrame values) {
+        Subscriber subscriber = subscriptions.get(identifier, topic);
+
+        if (subscriber == null) {
+            logger.debug("No subscription of {} for topic {} - ignoring event", identifier, topic);
+            return;
+        }
+
+        subscriber.onSubcriptionEvent(topic, values);
+    }
+
+    private void notifyAllSubscriber(String topic, CallbackFrame values) {
+        SubscriptionRegistry.SubscriberSet allSubscriber = subscriptions.getAll(topic);
+
+        if (allSubscriber.size() == 0) {
+            logger.debug("No subscription for topic {} - ignoring event", topic);
+            return;
+        }
+
+        for (int i = 0; i < allSubscriber.size(); i++) {
+            allSubscriber.get(i).onSubcriptionEvent(topic, values);
         }
     }
 
     @Override
     public int getCallbackPort() {
-        int callbackPort = -1;
-        callbackPortLock.lock();
-        callbackPort = this.callbackPort;
-        callbackPortLock.unlock();
         return callbackPort;
     }
 
-    private String decipherTopic(String crypticText) {
-        return crypticText.substring("topic:".length(), crypticText.indexOf(";"));
+    @Override
+    public long getStreamIdleTimeout() {
+        return STREAM_IDLE_TIMEOUT;
     }
 
-    private Map<String, String> decipherValues(String crypticText) {
-        Map<String, String> values = new HashMap<>();
-        crypticText = crypticText.substring(crypticText.indexOf(";") + 1, crypticText.length());
-        logger.trace("CrypticText without topic:{}", crypticText);
-
-        while (crypticText.length() > 0) {
-            logger.trace("Index: " + crypticText.indexOf(":"));
-            String param = crypticText.substring(0, crypticText.indexOf(":"));
-            String value = crypticText.substring(crypticText.indexOf(":") + 1, crypticText.indexOf(";"));
-
-            values.put(param, value);
-
-            crypticText = crypticText.substring(crypticText.indexOf(";") + 1, crypticText.length());
-        }
+    @Override
+    public String getTransport() {
+        return transport;
+    }
 
-        return values;
+    @Override
+    public String getMulticastGroup() {
+        return multicastGroup;
     }
 
     /*
@@ -185,8 +450,72 @@ public class SubscriptionServiceImpl implements SubscriptionService {
      */
     @Override
     public void subscribe(Subscriber subscriber, String topic, long bootid) {
-        addSubscription(subscriber, topic);
-        addRemoteSubscription(subscriber, topic, bootid);
+        subscribe(subscriber, Collections.singletonList(topic), bootid);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> subscribeAsync(Subscriber subscriber, String topic, long bootid) {
+        return subscribeAsync(subscriber, Collections.singletonList(topic), bootid)
+                .thenApply(results -> results.get(topic));
+    }
+
+    @Override
+    public Map<String, Boolean> subscribe(Subscriber subscriber, Collection<String> topics, long bootid) {
+        if (topics.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        addSubscriptions(subscriber, topics, bootid);
+        return inFlight.subscribe(subscriber, topics, bootid, requested -> {
+            Map<String, Boolean> results = addRemoteSubscriptions(subscriber, requested, bootid);
+            onRemoteSubscriptions(subscriber, results);
+            return CompletableFuture.completedFuture(results);
+        }).join();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> subscribeAsync(Subscriber subscriber, Collection<String> topics,
+            long bootid) {
+        if (topics.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        addSubscriptions(subscriber, topics, bootid);
+
+        return inFlight.subscribe(subscriber, topics, bootid,
+                requested -> requestRemoteSubscriptions(subscriber, requested, bootid));
+    }
+
+    /**
+     * Nur wer den Request sendet, bekommt die Callbacks. Wer sich anhängt, bekommt nur das Ergebnis.
+     */
+    private CompletableFuture<Map<String, Boolean>> requestRemoteSubscriptions(Subscriber subscriber,
+            List<String> topics, long bootid) {
+        CompletableFuture<Map<String, Boolean>> result = runRemote(
+                () -> addRemoteSubscriptions(subscriber, topics, bootid), failedForAll(topics));
+        result.thenAccept(results -> onRemoteSubscriptions(subscriber, results));
+        return result;
+    }
+
+    private void addSubscriptions(Subscriber subscriber, Collection<String> topics, long bootid) {
+        bootids.put(subscriber, bootid);
+        for (String topic : topics) {
+            addSubscription(subscriber, topic);
+        }
+    }
+
+    private void onRemoteSubscriptions(Subscriber subscriber, Map<String, Boolean> results) {
+        for (Map.Entry<String, Boolean> result : results.entrySet()) {
+            onRemoteSubscription(subscriber, result.getKey(), result.getValue());
+        }
+    }
+
+    private void onRemoteSubscription(Subscriber subscriber, String topic, boolean successful) {
+        if (successful) {
+            onSuccessfulRemoteSubscription(subscriber, topic);
+        } else {
+            onFailedRemoteSubscription(subscriber, topic);
+        }
     }
 
     /**
@@ -196,102 +525,248 @@ public class SubscriptionServiceImpl implements SubscriptionService {
      * @param topic
      */
     private void addSubscription(Subscriber subscriber, String topic) {
-        List<Subscriber> allSubscriber;
+        subscriptions.add(subscriber, topic);
+    }
 
-        synchronized (subscriptions) {
-            if (!subscriptions.containsKey(topic)) {
-                subscriptions.put(topic, new LinkedList<Subscriber>());
-            }
+    private Map<String, Boolean> addRemoteSubscriptions(Subscriber subscriber, Collection<String> topics,
+            long bootid) {
+        SubscriptionResult result = RESTIOServiceImpl.getInstance().addSubscriptions(subscriber, topics, bootid,
+                configuration.leaseDuration);
+        grantLeases(subscriber, result, bootid);
+        return result.getAccepted();
+    }
 
-            allSubscriber = subscriptions.get(topic);
+    /**
+     * A topic the device didn't renew is no longer subscribed there and handled like a failed subscription. If the
+     * device couldn't be reached, the leases stay and are renewed again until they run out.
+     */
+    private SubscriptionResult renewRemoteSubscriptions(Subscriber subscriber, Collection<String> topics,
+            long bootid) {
+        SubscriptionResult result = RESTIOServiceImpl.getInstance().renewSubscriptions(subscriber, topics, bootid,
+                configuration.leaseDuration);
+        if (!result.isAnswered()) {
+            return result;
         }
 
-        synchronized (allSubscriber) {
-            if (!allSubscriber.contains(subscriber)) {
-                allSubscriber.add(subscriber);
+        grantLeases(subscriber, result, bootid);
+        for (String topic : topics) {
+            if (!result.isAccepted(topic)) {
+                leases.remove(subscriber, topic);
+                onFailedRemoteSubscription(subscriber, topic);
             }
         }
+        return result;
     }
 
-    /**
-     * Add as a subscriber at devices
-     *
-     * @param subscriber
-     * @param topic
-     * @param bootid
-     */
-    private void addRemoteSubscription(Subscriber subscriber, String topic, long bootid) {
-        RESTIOServiceImpl.getInstance().addSubscription(subscriber, topic, bootid);
+    private void grantLeases(Subscriber subscriber, SubscriptionResult result, long bootid) {
+        List<String> leased = new ArrayList<>();
+        for (Map.Entry<String, Boolean> accepted : result.getAccepted().entrySet()) {
+            // Wurde eventuell schon wieder unsubscribed, während der Request lief
+            if (accepted.getValue() && subscriptions.contains(subscriber, accepted.getKey())) {
+                leased.add(accepted.getKey());
+            }
+        }
+
+        if (result.getTtl() == SubscriptionResult.NO_LEASE) {
+            // Gilt bis zur Unsubscription
+            for (String topic : leased) {
+                leases.remove(subscriber, topic);
+            }
+        } else if (!leased.isEmpty()) {
+            leases.granted(subscriber, leased, bootid, result.getTtl());
+        }
     }
 
     @Override
     public void onSuccessfulRemoteSubscription(Subscriber subscriber, String topic) {
-        subscriber.onFullSuccessfulSubscription(topic);
+        delivery.execute(subscriber.getIdentifier(), () -> subscriber.onFullSuccessfulSubscription(topic));
     }
 
     @Override
     public void onFailedRemoteSubscription(Subscriber subscriber, String topic) {
-        subscriber.onPartialSucessfulSubscription(topic);
+        delivery.execute(subscriber.getIdentifier(), () -> subscriber.onPartialSucessfulSubscription(topic));
     }
 
     @Override
     public void unsubscribe(Subscriber subscriber, String topic, long bootid) {
         removeSubscription(subscriber, topic);
-        removeRemoteSubscription(subscriber, topic, bootid);
+        onRemoteSubscriptionRemoval(subscriber, topic, removeRemoteSubscription(subscriber, topic, bootid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> unsubscribeAsync(Subscriber subscriber, String topic, long bootid) {
+        removeSubscription(subscriber, topic);
+
+        CompletableFuture<Boolean> result = runRemote(() -> removeRemoteSubscription(subscriber, topic, bootid),
+                false);
+        result.thenAccept(successful -> onRemoteSubscriptionRemoval(subscriber, topic, successful));
+        return result;
+    }
+
+    @Override
+    public Map<String, Boolean> unsubscribe(Subscriber subscriber, Collection<String> topics, long bootid) {
+        if (topics.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        removeSubscriptions(subscriber, topics);
+        Map<String, Boolean> results = RESTIOServiceImpl.getInstance().removeSubscriptions(subscriber, topics,
+                bootid);
+        onRemoteSubscriptionRemovals(subscriber, results);
+        return results;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> unsubscribeAsync(Subscriber subscriber, Collection<String> topics,
+            long bootid) {
+        if (topics.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        removeSubscriptions(subscriber, topics);
+
+        List<String> requested = new ArrayList<>(topics);
+        CompletableFuture<Map<String, Boolean>> result = runRemote(
+                () -> RESTIOServiceImpl.getInstance().removeSubscriptions(subscriber, requested, bootid),
+                failedForAll(requested));
+        result.thenAccept(results -> onRemoteSubscriptionRemovals(subscriber, results));
+        return result;
+    }
+
+    private void removeSubscriptions(Subscriber subscriber, Collection<String> topics) {
+        for (String topic : topics) {
+            removeSubscription(subscriber, topic);
+        }
+    }
+
+    private void onRemoteSubscriptionRemovals(Subscriber subscriber, Map<String, Boolean> results) {
+        for (Map.Entry<String, Boolean> result : results.entrySet()) {
+            onRemoteSubscriptionRemoval(subscriber, result.getKey(), result.getValue());
+        }
+    }
+
+    private static Map<String, Boolean> failedForAll(Collection<String> topics) {
+        Map<String, Boolean> results = new HashMap<>();
+        for (String topic : topics) {
+            results.put(topic, false);
+        }
+        return results;
+    }
+
+    private void onRemoteSubscriptionRemoval(Subscriber subscriber, String topic, boolean successful) {
+        if (successful) {
+            onSuccessfulRemoteSubscriptionRemoval(subscriber, topic);
+        } else {
+            onFailedRemoteSubscriptionRemoval(subscriber, topic);
+        }
     }
 
     @Override
     public void removeSubscription(Subscriber subscriber, String topic) {
-        // TODO: internal removal
-        List<Subscriber> allSubscriber;
+        subscriptions.remove(subscriber, topic);
+        leases.remove(subscriber, topic);
+        if (!hasSubscriptions(subscriber)) {
+            bootids.remove(subscriber);
+        }
+    }
 
-        synchronized (subscriptions) {
-            if (!subscriptions.containsKey(topic)) {
-                return;
+    private boolean hasSubscriptions(Subscriber subscriber) {
+        String identifier = subscriber.getIdentifier();
+        for (String topic : subscriptions.getTopics(identifier)) {
+            if (subscriptions.get(identifier, topic) == subscriber) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> reconcileAsync(Subscriber subscriber, long bootid) {
+        if (coordinator.isQueued(subscriber) || retries.isPending(subscriber)) {
+            // Die ausstehende Subscription ändert den Stand gleich wieder, der nächste Abgleich holt es nach
+            logger.trace("Subscription of {} pending - not reconciling", subscriber.getIdentifier());
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return runRemote(() -> RESTIOServiceImpl.getInstance().getSubscriptions(subscriber, bootid), null)
+                .thenCompose(remote -> reconcile(subscriber, remote, bootid));
+    }
 
-            allSubscriber = subscriptions.get(topic);
+    private CompletableFuture<Boolean> reconcile(Subscriber subscriber, Set<String> remote, long bootid) {
+        if (remote == null) {
+            return CompletableFuture.completedFuture(false);
         }
 
-        synchronized (allSubscriber) {
-            if (allSubscriber.contains(subscriber)) {
-                allSubscriber.remove(subscriber);
+        List<String> missing = new ArrayList<>();
+        for (String topic : subscriptions.getTopics(subscriber.getIdentifier())) {
+            if (!remote.contains(topic) && subscriptions.contains(subscriber, topic)) {
+                missing.add(topic);
+            }
+        }
+        List<String> stale = new ArrayList<>();
+        for (String topic : remote) {
+            if (!subscriptions.contains(subscriber, topic)) {
+                stale.add(topic);
             }
         }
+
+        if (missing.isEmpty() && stale.isEmpty()) {
+            logger.trace("Subscriptions of {} are in sync", subscriber.getIdentifier());
+            return CompletableFuture.completedFuture(true);
+        }
+
+        logger.info("Subscriptions of {} are out of sync, subscribing {}, unsubscribing {}",
+                subscriber.getIdentifier(), missing, stale);
+        CompletableFuture<Map<String, Boolean>> subscribed = CompletableFuture.completedFuture(null);
+        if (!missing.isEmpty()) {
+            subscribed = inFlight.subscribe(subscriber, missing, bootid,
+                    requested -> requestRemoteSubscriptions(subscriber, requested, bootid));
+        }
+        // Lokal gibt es die Topics nicht, also auch keinen Subscriber, der die Callbacks erwartet
+        CompletableFuture<Map<String, Boolean>> unsubscribed = CompletableFuture.completedFuture(null);
+        if (!stale.isEmpty()) {
+            unsubscribed = runRemote(() -> RESTIOServiceImpl.getInstance().removeSubscriptions(subscriber, stale,
+                    bootid), failedForAll(stale));
+        }
+
+        return subscribed.thenCombine(unsubscribed, (s, u) -> true);
     }
 
-    private void removeRemoteSubscription(Subscriber subscriber, String topic, long bootid) {
-        RESTIOServiceImpl.getInstance().removeSubscription(subscriber, topic, bootid);
+    private boolean removeRemoteSubscription(Subscriber subscriber, String topic, long bootid) {
+        return RESTIOServiceImpl.getInstance().removeSubscription(subscriber, topic, bootid);
+    }
+
+    /**
+     * Runs a remote call on the subscription executor. The future never completes exceptionally: an overloaded
+     * executor or an unexpected error complete it with the given failed result.
+     */
+    private <T> CompletableFuture<T> runRemote(Supplier<T> call, T failed) {
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(call, subscriptionExecutor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many pending subscription requests - failing the request");
+            return CompletableFuture.completedFuture(failed);
+        }
+
+        return result.exceptionally(e -> {
+            logger.warn("Remote subscription request failed: {}", e.toString());
+            return failed;
+        });
     }
 
     @Override
     public void onSuccessfulRemoteSubscriptionRemoval(Subscriber subscriber, String topic) {
-        subscriber.onFullSuccessfullUnsubscription(topic);
+        delivery.execute(subscriber.getIdentifier(), () -> subscriber.onFullSuccessfullUnsubscription(topic));
     }
 
     @Override
     public void onFailedRemoteSubscriptionRemoval(Subscriber subscriber, String topic) {
-        subscriber.onPartialSucessfulUnsubscription(topic);
+        delivery.execute(subscriber.getIdentifier(), () -> subscriber.onPartialSucessfulUnsubscription(topic));
     }
 
     @Override
     public boolean doesSubscriptionExists(Subscriber subscriber, String topic) {
-        List<Subscriber> allSubscriber;
-
-        synchronized (subscriptions) {
-            if (!subscriptions.containsKey(topic)) {
-                return false;
-            } else {
-                allSubscriber = subscriptions.get(topic);
-            }
-        }
-
-        synchronized (allSubscriber) {
-            if (allSubscriber != null) {
-                return allSubscriber.contains(subscriber);
-            }
-        }
-
-        return false;
+        return subscriptions.contains(subscriber, topic);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package org.eclipse.smarthome.binding.drehbinding.eventing;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timer wheel for many timeouts that only need to be roughly on time, like retries. One thread advances the
+ * wheel every tick and runs the timeouts of the current bucket. Scheduling and cancelling never take a lock, so a
+ * few hundred devices retrying at once cost nothing but a list entry each.
+ *
+ * A timeout runs up to one tick late. Tasks run on the wheel thread and must not block.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class TimerWheel {
+
+    private final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    public static class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        private volatile boolean cancelled = false;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * The task won't run if it didn't start yet
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final String name;
+    private final long tickNanos;
+    private final List<Timeout>[] buckets;
+    private final int mask;
+
+    /**
+     * New timeouts, moved into their bucket by the wheel thread
+     */
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+
+    private ExecutorService worker;
+    private volatile boolean shutdown = false;
+    private long startTime;
+
+    /**
+     * @param name name of the wheel thread
+     * @param tick duration of one tick in ms
+     * @param bucketCount number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tick, int bucketCount) {
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+
+        int size = Integer.highestOneBit(Math.max(1, bucketCount - 1)) << 1;
+        buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        mask = size - 1;
+    }
+
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+
+        startTime = System.nanoTime();
+        worker = Executors.newSingleThreadExecutor(new NamedThreadFactory(name));
+        worker.execute(this::run);
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+
+    /**
+     * @param task runs on the wheel thread once the delay passed
+     * @param delay in ms
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+        added.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        long tick = 0;
+        try {
+            while (!shutdown) {
+                long sleep = startTime + (tick + 1) * tickNanos - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+
+                transferAdded(tick);
+                expire(buckets[(int) (tick & mask)]);
+                tick++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void transferAdded(long tick) {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+
+            // Nie in die Vergangenheit einsortieren, sonst käme der Timeout erst eine ganze Umdrehung später
+            long due = Math.max(tick, (timeout.deadline - startTime) / tickNanos);
+            timeout.rounds = (due - tick) / buckets.length;
+            buckets[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                iterator.remove();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Timeout task failed: {}", e.toString());
+                }
+            }
+        }
+    }
+}
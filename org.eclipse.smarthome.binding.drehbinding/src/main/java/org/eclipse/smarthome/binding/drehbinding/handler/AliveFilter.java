@@ -0,0 +1,68 @@
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets the registry thread drop alive messages that change nothing, without posting them into the mailbox.
+ *
+ * The mailbox bumps the epoch on every change an alive message could react to (state, presence, given up
+ * subscriptions). When it handled an alive message without doing anything, it marks the epoch and the device as
+ * quiet. The following alive messages of the same device object are dropped until the epoch moves on. jUPnP hands
+ * in the same object as long as the device doesn't change, a new address means a new object.
+ *
+ * An alive message that races with a change is dropped as if it had arrived just before it, the next one is
+ * processed.
+ *
+ * Is ThreadSafe. Only the mailbox may call {@link #invalidate()} and {@link #quiet(Object)}.
+ *
+ * @author Tristan
+ *
+ */
+class AliveFilter {
+
+    private static final class Quiet {
+        final long epoch;
+        final Object device;
+
+        Quiet(long epoch, Object device) {
+            this.epoch = epoch;
+            this.device = device;
+        }
+    }
+
+    // Nur von der Mailbox geschrieben, daher reicht volatile
+    private volatile long epoch = 0;
+    private volatile Quiet quiet = null;
+
+    private final LongAdder skipped = new LongAdder();
+
+    void invalidate() {
+        epoch++;
+    }
+
+    /**
+     * The last alive message of the device changed nothing
+     */
+    void quiet(Object device) {
+        quiet = new Quiet(epoch, device);
+    }
+
+    /**
+     * @return true if the alive message can be dropped
+     */
+    boolean isQuiet(Object device) {
+        Quiet current = quiet;
+        if (current != null && current.device == device && current.epoch == epoch) {
+            skipped.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of dropped alive messages
+     */
+    long getSkipped() {
+        return skipped.sum();
+    }
+}
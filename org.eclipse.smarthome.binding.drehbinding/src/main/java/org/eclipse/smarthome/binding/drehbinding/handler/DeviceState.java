@@ -0,0 +1,50 @@
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+/**
+ * Lifecycle of a {@link DrehbindingHandler}. Only the mailbox of the handler changes it.
+ *
+ * <pre>
+ * UNKNOWN -> DISCOVERED -> SUBSCRIBING -> ONLINE <-> DEGRADED
+ *    |                         ^            |           |
+ *    +---- not discovered -----+            v           v
+ *                                        OFFLINE <------+
+ * </pre>
+ *
+ * Any state goes to OFFLINE when the device leaves the jUPnP registry, OFFLINE goes to DISCOVERED when it comes back.
+ *
+ * @author Tristan
+ *
+ */
+public enum DeviceState {
+
+    /**
+     * Initialized, the registry wasn't checked yet
+     */
+    UNKNOWN,
+
+    /**
+     * The device is in the jUPnP registry, its endpoint is known. The thing stays UNKNOWN until it is subscribed.
+     */
+    DISCOVERED,
+
+    /**
+     * Waiting for the device to answer the subscription. Also when the device wasn't discovered yet, in case it
+     * still runs from before a restart.
+     */
+    SUBSCRIBING,
+
+    /**
+     * The device was seen and all static topics are subscribed. Only here the thing is ONLINE.
+     */
+    ONLINE,
+
+    /**
+     * A subscription failed and is retried, or the circuit breaker suspended the calls to the device
+     */
+    DEGRADED,
+
+    /**
+     * The device left the registry, or the retries gave up. The next alive message subscribes again.
+     */
+    OFFLINE
+}
@@ -14,19 +14,29 @@ package org.eclipse.smarthome.binding.drehbinding.handler;
 
 import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.binding.drehbinding.eventing.CallbackFrame;
+import org.eclipse.smarthome.binding.drehbinding.eventing.EventFilter;
+import org.eclipse.smarthome.binding.drehbinding.eventing.RetryScheduler;
 import org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber;
+import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionCoordinator;
+import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionReconciler;
 import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionService;
 import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionServiceImpl;
 import org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingConfiguration;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.CircuitBreaker;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.DeviceEndpoint;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.DeviceEndpointTable;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTServiceImpl;
 import org.eclipse.smarthome.core.library.types.DateTimeType;
 import org.eclipse.smarthome.core.library.types.StringType;
 import org.eclipse.smarthome.core.thing.Channel;
@@ -36,12 +46,7 @@ import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.types.Command;
-import org.jupnp.UpnpService;
-import org.jupnp.model.meta.LocalDevice;
 import org.jupnp.model.meta.RemoteDevice;
-import org.jupnp.model.types.UDN;
-import org.jupnp.registry.Registry;
-import org.jupnp.registry.RegistryListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,10 +54,17 @@ import org.slf4j.LoggerFactory;
  * The {@link DrehbindingHandler} is responsible for handling commands, which are
  * sent to one of the channels.
  *
+ * The lifecycle is a {@link DeviceState} machine. Registry callbacks, subscription callbacks, retries, circuit
+ * breaker changes, link changes and dispose only post a {@link Signal} into the {@link Mailbox} of the handler and
+ * return right away. The mailbox processes the signals one after another on the handler threads of the
+ * {@link RemoteDeviceDispatcher}, so the state needs no locks and e.g. remoteDeviceAdded and remoteDeviceUpdated
+ * arriving at the same time are simply processed in order. Events are still delivered on the delivery lanes, they
+ * only read the volatile event filter.
+ *
  * @author Tristan - Initial contribution
  */
 @NonNullByDefault
-public class DrehbindingHandler extends BaseThingHandler implements Subscriber, RegistryListener {
+public class DrehbindingHandler extends BaseThingHandler implements Subscriber {
 
     private final Logger logger = LoggerFactory.getLogger(DrehbindingHandler.class);
 
@@ -60,35 +72,131 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
     private DrehbindingConfiguration config;
 
     private final SubscriptionService subscriptionService = SubscriptionServiceImpl.getInstance();
+    private final SubscriptionCoordinator coordinator = SubscriptionServiceImpl.getInstance().getCoordinator();
+    private final RetryScheduler retries = SubscriptionServiceImpl.getInstance().getRetryScheduler();
+    private final SubscriptionReconciler reconciler = SubscriptionServiceImpl.getInstance().getReconciler();
+    private final DeviceEndpointTable endpoints = DeviceEndpointTable.getInstance();
+    private final RemoteDeviceDispatcher dispatcher = RemoteDeviceDispatcher.getInstance();
+
+    // Zeigt den Zustand des Circuit Breakers des Devices im Thing Status an
+    private final CircuitBreaker.Listener breakerListener = this::breakerStateChanged;
 
     /*
      * Missing BOOTID workaround -> informations will follow
      */
     private final long bootid;
 
-    // Flag für RegistryListener Spezialfall 2)
-    private boolean addedFlag = false;
-    private final Lock addedFlagLock;
+    /*
+     * Die UDN ändert sich nie, getProperties kopiert aber bei jedem Aufruf alle Properties
+     */
+    private final String identifier;
+
+    /**
+     * Everything that may change the state goes through here
+     */
+    private final Mailbox<Signal> mailbox;
+
+    /**
+     * Drops the alive messages that change nothing before they reach the mailbox
+     */
+    private final AliveFilter alive = new AliveFilter();
+
+    private enum Kind {
+        INITIALIZE,
+        LOOKED_UP,
+        DEVICE_ADDED,
+        DEVICE_UPDATED,
+        DEVICE_REMOVED,
+        SUBSCRIBED,
+        SUBSCRIPTION_FAILED,
+        UNSUBSCRIBED,
+        UNSUBSCRIPTION_FAILED,
+        RETRY,
+        BREAKER_CHANGED,
+        LINKS_CHANGED,
+        DISPOSE
+    }
+
+    /**
+     * Message into the mailbox, only the fields of its kind are set
+     */
+    private static final class Signal {
+        final Kind kind;
+        final int generation;
+        @Nullable
+        RemoteDevice device;
+        @Nullable
+        String topic;
+        @Nullable
+        Collection<String> topics;
+        @Nullable
+        CircuitBreaker.State breakerState;
+
+        Signal(Kind kind, int generation) {
+            this.kind = kind;
+            this.generation = generation;
+        }
+
+        @Override
+        public String toString() {
+            if (topic != null) {
+                return kind + " " + topic;
+            }
+            if (topics != null) {
+                return kind + " " + topics;
+            }
+            if (breakerState != null) {
+                return kind + " " + breakerState;
+            }
+            return kind.toString();
+        }
+    }
+
+    /*
+     * Nur in der Mailbox geändert. Volatile nur, damit der Zustand von außen gelesen werden kann.
+     */
+    private volatile DeviceState state = DeviceState.UNKNOWN;
+
+    // Nur in der Mailbox benutzt: Das Device ist in der jUPnP Registry
+    private boolean present = false;
+
+    // Nur in der Mailbox benutzt: Die Retrys haben aufgegeben, die nächste Alive Message subscribed erneut
+    private boolean resubscribeOnAlive = false;
+
+    // Nur in der Mailbox benutzt: Der Circuit Breaker hat die Aufrufe ans Device ausgesetzt
+    private boolean suspended = false;
 
-    private final Object modificationLock;
-    private final UpnpService upnpService;
+    // Zwischen dispose und dem nächsten initialize werden keine Signale verarbeitet
+    private volatile boolean disposed = false;
 
-    public DrehbindingHandler(Thing thing, UpnpService upnpService) {
+    /*
+     * Das Framework ruft bei thingUpdated und handleConfigurationUpdate dispose und initialize auf derselben Instanz
+     * auf. Jedes initialize beginnt eine neue Generation, Signale einer älteren werden verworfen. Nur vom Thread des
+     * Frameworks geändert, der initialize und dispose nacheinander aufruft.
+     */
+    private volatile int generation = 0;
+
+    // Welche Gesten welchen Channel füttern, daraus ergibt sich der Event Filter
+    private final GestureMapping mapping = GestureMapping.DEFAULT;
+
+    // Wird bei jeder Subscription ans Device geschickt, neu berechnet wenn sich die Links ändern
+    private volatile EventFilter eventFilter = EventFilter.ALL;
+
+    // Nur auf der Delivery Lane des Devices benutzt
+    private long lastEventTime = 0;
+
+    public DrehbindingHandler(Thing thing) {
         super(thing);
-        this.addedFlagLock = new ReentrantLock();
-        this.upnpService = upnpService;
+        this.identifier = thing.getProperties().get(UDN);
 
         Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC+1"));
         bootid = calendar.getTimeInMillis() / 1000L;
 
         /*
-         * Not sure if the registry of the registrylistener should be done inside
-         * or after the constructor. Is it safe to assume the upnpService and the
-         * getThing are always != null?
+         * Nicht auf den Delivery Lanes: Die Signale rufen das Framework auf (updateStatus, isLinked, ...), ein
+         * langsamer Aufruf würde sonst die Events aller Devices auf derselben Lane aufhalten.
          */
-        // upnpService.getRegistry().addListener(this);
-
-        modificationLock = new Object();
+        mailbox = new Mailbox<>(dispatcher::execute, this::receive);
     }
 
     @Override
@@ -149,60 +257,25 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
     @Override
     public void initialize() {
         logger.debug("Initializing");
+        generation++;
+        disposed = false;
         updateStatus(ThingStatus.UNKNOWN);
 
         /*
-         * Dies wird eintreten, sollte das Device sich noch nicht in den Things befinden, heißt es gibt noch keinen
-         * Handler. Fakt ist nämlich, dass Handler für bereits schon vorhandene Devices hinzugefügt (initialisiert)
-         * werden, bevor das UpnpDiscovery Überhaupt gestartet wird. Das heißt für alle diese Handler für schon
-         * vorhandene Things, wird die Registry nie einträge enthalten und das Device wird immer == null sein.
-         *
-         * Bei Handler für schon hinzugefügte Things wird während der Initialisierung der RegistryListener hinzugefügt
-         * und deshalb wird remoteDeviceAdded aufgerufen, sobald der UpnpService das Device, welches bereits als Thing
-         * vorliegt, erkennt. Ein Update wird dabei scheinbar nicht gekickt, es sei denn, rein zufällig sendet das
-         * Device zum gleichen Zeitpunkt eine AliveMessage raus.
+         * Der Rest läuft in der Mailbox, der Thread des Frameworks initialisiert sonst alle Things nacheinander.
          *
-         * Bei Devices die gerade erst als neue Things hinzugefügt werden sollen, entdeckt das UpnpDiscovery diese,
-         * bevor überhaupt ein potentieller Handler entsteht. Dieser wird nämlich erst angelegt, wenn der Nutzer sich
-         * dazu entscheidet das Device als Thing hinzuzufügen. Dadurch liegt das Device bereits in der Registry vor und
-         * die remoteDeviceAdded Methode kann niemals aufgerufen werden, da das Device zur Registry hinzugefügt wurde,
-         * bevor der Handler überhaupt existiert hat (und bei der Initialisierung des Handlers wird schließlich der
-         * Listener hinzugefügt). Deshalb gibt es während der Initialisierung ob das Gerät der Registry bereits
-         * vorliegt.
+         * Things, die es schon vor dem Start gab, werden initialisiert bevor das UpnpDiscovery überhaupt läuft, ihr
+         * Device ist dann noch nicht in der Registry und remoteDeviceAdded kommt später. Things, die gerade erst
+         * angelegt wurden, hat das Discovery dagegen schon gefunden, für sie kommt nie ein remoteDeviceAdded. Deshalb
+         * schaut INITIALIZE einmal in die Registry. Es steht vor allen Signalen des Dispatchers in der Mailbox, kommt
+         * das Device trotzdem zeitgleich, wird es eben in dieser Reihenfolge verarbeitet.
          */
-        RemoteDevice device = upnpService.getRegistry().getRemoteDevice(new UDN(getThing().getProperties().get(UDN)),
-                false);
-        logger.debug("Device is null? {}", (device == null));
-        if (device != null) {
-            updateStatus(ThingStatus.ONLINE);
-            remoteDeviceAdded(upnpService.getRegistry(), device);
-        } else {
-            updateStatus(ThingStatus.OFFLINE);
-        }
+        mailbox.post(new Signal(Kind.INITIALIZE, generation));
 
-        upnpService.getRegistry().addListener(this);
+        dispatcher.register(getIdentifier(), this);
+        RESTServiceImpl.getInstance().addBreakerListener(breakerListener);
+        reconciler.register(this, bootid);
         logger.debug("Listener added!");
-
-        // TODO: Initialize the handler.
-        // The framework requires you to return from this method quickly. Also, before leaving this method a thing
-        // status from one of ONLINE, OFFLINE or UNKNOWN must be set. This might already be the real thing status in
-        // case you can decide it directly.
-        // In case you can not decide the thing status directly (e.g. for long running connection handshake using WAN
-        // access or similar) you should set status UNKNOWN here and then decide the real status asynchronously in the
-        // background.
-
-        // set the thing status to UNKNOWN temporarily and let the background task decide for the real status.
-        // the framework is then able to reuse the resources from the thing handler initialization.
-        // we set this upfront to reliably check status updates in unit tests.
-
-        // // Note: When initialization can NOT be done set the status with more details for further
-        // // analysis. See also class ThingStatusDetail for all available status details.
-        // // Add a description to give user information to understand why thing does not work as expected.
-        // // E.g.
-        // // updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
-        // // "Can not access device as username and/or password are invalid");
-        // }
-        // });
     }
 
     @Override
@@ -211,22 +284,11 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
         // Wird dies gebraucht?
         super.dispose();
 
-        /*
-         * Wenn das Thing noch online ist, wird das remote unsubscriben angestoßen werden, damit das Device
-         * synchronisiert bleiben kann. Sollte es nicht online sein hat es eh keine Subscriptions vorliegen. Die
-         * Subscriptions des Handlers müssen dann nur lokal entfernt werden. Eine lokale Entfernung ist erfordlerlich,
-         * da der SubscriptionService gegebenfalls noch andere Handler betreut und wir keine falschen Subscriptions
-         * vorliegen haben wollen.
-         */
-        if (getThing().getStatus() == ThingStatus.ONLINE) {
-            synchronized (modificationLock) {
-                unsubscribeFromAllTopics();
-            }
-        } else {
-            synchronized (modificationLock) {
-                unsubscribeFromAllTopicsLocaly();
-            }
-        }
+        disposed = true;
+        dispatcher.unregister(getIdentifier(), this);
+        RESTServiceImpl.getInstance().removeBreakerListener(breakerListener);
+        reconciler.unregister(this);
+        mailbox.post(new Signal(Kind.DISPOSE, generation));
     }
 
     @Override
@@ -241,6 +303,392 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
         super.handleConfigurationUpdate(configurationParameters);
     }
 
+    /**
+     * @return the current lifecycle state
+     */
+    public DeviceState getDeviceState() {
+        return state;
+    }
+
+    /**
+     * @return number of alive messages dropped before the mailbox
+     */
+    long getSkippedAlives() {
+        return alive.getSkipped();
+    }
+
+    /*
+     * ###############################################################################################
+     * #
+     * #
+     * # STATE MACHINE
+     * #
+     * #
+     * ###############################################################################################
+     */
+    /**
+     * Runs in the mailbox only
+     */
+    private void receive(Signal signal) {
+        if (signal.kind != Kind.DISPOSE && (disposed || signal.generation != generation)) {
+            logger.trace("Disposed or stale, dropping {}", signal);
+            return;
+        }
+        logger.trace("{} in state {}", signal, state);
+
+        switch (signal.kind) {
+            case INITIALIZE:
+                onInitialize(signal.generation);
+                break;
+            case LOOKED_UP:
+                onLookedUp(signal.device);
+                break;
+            case DEVICE_ADDED:
+            case DEVICE_UPDATED:
+                onDeviceAlive(signal.kind, signal.device);
+                break;
+            case DEVICE_REMOVED:
+                onDeviceRemoved();
+                break;
+            case SUBSCRIBED:
+                onSubscribed();
+                break;
+            case SUBSCRIPTION_FAILED:
+                onSubscriptionFailed(signal.topic);
+                break;
+            case UNSUBSCRIBED:
+                logger.debug("Unsubscribed successful for {}", signal.topic);
+                break;
+            case UNSUBSCRIPTION_FAILED:
+                onUnsubscriptionFailed(signal.topic);
+                break;
+            case RETRY:
+                onRetry(signal.topics);
+                break;
+            case BREAKER_CHANGED:
+                onBreakerChanged(signal.breakerState);
+                break;
+            case LINKS_CHANGED:
+                onLinksChanged();
+                break;
+            case DISPOSE:
+                onDispose();
+                break;
+        }
+    }
+
+    /**
+     * Starts from scratch, the handler may have been disposed before
+     */
+    private void onInitialize(int initialized) {
+        state = DeviceState.UNKNOWN;
+        present = false;
+        resubscribeOnAlive = false;
+        suspended = false;
+        alive.invalidate();
+        retries.cancel(this);
+
+        config = getConfigAs(DrehbindingConfiguration.class);
+        eventFilter = deriveEventFilter();
+
+        // Die zuletzt bekannte Adresse, bis das Device wieder discovered wird
+        endpoints.update(getIdentifier(), getThing().getProperties().get(HOST));
+
+        // Die Registry ist synchronisiert und beim Start sehr beschäftigt, die Mailbox soll nicht auf sie warten
+        dispatcher.lookupAsync(getIdentifier()).thenAccept(device -> {
+            Signal signal = new Signal(Kind.LOOKED_UP, initialized);
+            signal.device = device;
+            mailbox.post(signal);
+        });
+    }
+
+    private void onLookedUp(@Nullable RemoteDevice device) {
+        if (state != DeviceState.UNKNOWN) {
+            // Das Device wurde inzwischen gemeldet
+            return;
+        }
+
+        logger.debug("Device is null? {}", (device == null));
+        if (device != null) {
+            onDeviceAlive(Kind.DEVICE_ADDED, device);
+            return;
+        }
+
+        /*
+         * Nach einem Neustart von openHAB laufen die meisten Devices weiter, sie sind nur noch nicht wieder
+         * discovered. Die Subscription wird trotzdem schon eingereiht, kommt aber erst nach den bekannten Devices
+         * dran. Online geht das Thing aber erst, wenn das Device auch gesehen wurde.
+         */
+        enter(DeviceState.SUBSCRIBING, ThingStatus.OFFLINE, ThingStatusDetail.NONE, "Not discovered yet");
+        subscribeForAllStaticTopics();
+    }
+
+    /**
+     * remoteDeviceAdded and remoteDeviceUpdated. Which one comes first doesn't matter: the first one discovers the
+     * device, the others only take over a changed address. Added may even never come, when the device got into the
+     * registry before the listener was added.
+     */
+    private void onDeviceAlive(Kind kind, @Nullable RemoteDevice device) {
+        if (device != null) {
+            updateEndpoint(device);
+        }
+
+        if (!present) {
+            logger.debug("Device discovered ({})", kind);
+            present = true;
+            resubscribeOnAlive = false;
+            enter(DeviceState.DISCOVERED, ThingStatus.UNKNOWN, ThingStatusDetail.NONE, "Discovered");
+            subscribeAndReconcile();
+            return;
+        }
+
+        /*
+         * Abgelaufene Leases und fehlgeschlagene Subscriptions werden vom LeaseRenewer und den Retrys behandelt,
+         * Abweichungen zum Device vom periodischen Abgleich. Die Alive Message muss nur noch nachholen, was die Retrys
+         * aufgegeben haben, und Lücken schließen, um die sich gerade niemand kümmert.
+         */
+        if (state == DeviceState.OFFLINE && resubscribeOnAlive) {
+            logger.debug("Retries gave up earlier, subscribing again for the missing static topics");
+            resubscribeOnAlive = false;
+            subscribeAndReconcile();
+            return;
+        }
+
+        if (state == DeviceState.ONLINE && !isFullySubscribed() && !coordinator.isQueued(this)
+                && !retries.isPending(this)) {
+            logger.debug("Static topics missing, subscribing again");
+            subscribeAndReconcile();
+            return;
+        }
+
+        // Bis sich etwas ändert, brauchen weitere Alive Messages gar nicht erst in die Mailbox
+        if (kind == Kind.DEVICE_UPDATED && device != null) {
+            alive.quiet(device);
+        }
+    }
+
+    private void subscribeAndReconcile() {
+        CompletableFuture<?> subscription = subscribeForAllStaticTopics();
+        if (subscription == null) {
+            enterOnline();
+            subscriptionService.reconcileAsync(this, bootid);
+            return;
+        }
+
+        enter(DeviceState.SUBSCRIBING, ThingStatus.UNKNOWN, ThingStatusDetail.NONE, "Subscribing");
+        reconcileAfter(subscription);
+    }
+
+    /**
+     * The device left the registry, by byebye or because it expired, both look the same. It has to be assumed that
+     * the device dropped all subscriptions, so they are removed locally. If it was only unreachable, a new
+     * subscription with the same bootid replaces the old one at the device, and the reconciliation removes what is
+     * left over.
+     */
+    private void onDeviceRemoved() {
+        if (!present) {
+            return;
+        }
+
+        present = false;
+        resubscribeOnAlive = false;
+        alive.invalidate();
+        coordinator.cancel(this);
+        retries.cancel(this);
+        unsubscribeFromAllTopicsLocaly();
+        enter(DeviceState.OFFLINE, ThingStatus.OFFLINE, ThingStatusDetail.NONE, null);
+    }
+
+    private void onSubscribed() {
+        retries.succeeded(this);
+        if (isFullySubscribed()) {
+            enterOnline();
+        }
+    }
+
+    /**
+     * Static und dynamic Topics werden gleich behandelt: Die lokale Subscription wird entfernt, damit sie als
+     * fehlend erkannt wird, und die Subscription wird mit Backoff wiederholt. Meistens war das Device nur kurz nicht
+     * erreichbar (WLAN weg) und muss so nicht bis zur nächsten Alive Message taub bleiben.
+     */
+    private void onSubscriptionFailed(@Nullable String topic) {
+        if (topic == null) {
+            return;
+        }
+
+        unsubscribeLocaly(topic);
+        if (state == DeviceState.OFFLINE && !resubscribeOnAlive) {
+            // Das Device ist inzwischen weg, beim nächsten Discovery wird eh neu subscribed
+            return;
+        }
+
+        if (retries.schedule(this, RetryScheduler.Kind.SUBSCRIBE, topic, this::postRetry)) {
+            enter(DeviceState.DEGRADED, ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                    "Subscription failed, retrying");
+        } else {
+            resubscribeOnAlive = true;
+            alive.invalidate();
+            enter(DeviceState.OFFLINE, ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, null);
+        }
+    }
+
+    /**
+     * Runs on the timer thread of the retries, must not block
+     */
+    private void postRetry(Collection<String> topics) {
+        Signal signal = new Signal(Kind.RETRY, generation);
+        signal.topics = topics;
+        mailbox.post(signal);
+    }
+
+    private void onRetry(@Nullable Collection<String> topics) {
+        if (topics == null) {
+            return;
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String topic : topics) {
+            // Inzwischen könnte eine Alive Message schon neu subscribed haben
+            if (!subscriptionService.doesSubscriptionExists(this, topic)) {
+                missing.add(topic);
+            }
+        }
+        if (!missing.isEmpty()) {
+            subscribe(missing);
+        }
+    }
+
+    /**
+     * Static topics are only unsubscribed on dispose, the signal is dropped then. The local subscription is gone
+     * anyway and a later subscription comes with a new bootid.
+     *
+     * A failed unsubscription of a dynamic topic is retried, the device was probably just unreachable for a moment.
+     * If the retries give up too, the device is considered offline. The worst case is a device that keeps sending
+     * events for the topic, which the subscription service drops.
+     */
+    private void onUnsubscriptionFailed(@Nullable String topic) {
+        if (topic == null || isTopicStatic(topic)) {
+            return;
+        }
+
+        if (retries.schedule(this, RetryScheduler.Kind.UNSUBSCRIBE, topic,
+                topics -> subscriptionService.unsubscribeAsync(this, topics, bootid))) {
+            return;
+        }
+        enter(DeviceState.OFFLINE, ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, null);
+    }
+
+    private void onBreakerChanged(@Nullable CircuitBreaker.State breakerState) {
+        if (breakerState == null || state == DeviceState.UNKNOWN || state == DeviceState.OFFLINE) {
+            return;
+        }
+
+        switch (breakerState) {
+            case OPEN:
+                suspended = true;
+                enter(DeviceState.DEGRADED, ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                        "Device not reachable, calls suspended");
+                break;
+
+            case HALF_OPEN:
+                suspended = true;
+                enter(DeviceState.DEGRADED, ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                        "Device not reachable, probing");
+                break;
+
+            case CLOSED:
+                suspended = false;
+                if (state != DeviceState.DEGRADED) {
+                    break;
+                }
+                if (isFullySubscribed()) {
+                    enterOnline();
+                } else if (retries.isPending(this)) {
+                    enter(DeviceState.DEGRADED, ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                            "Subscription failed, retrying");
+                } else {
+                    subscribeAndReconcile();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Sends the subscriptions again if the filter changed, the device replaces the old ones
+     */
+    private void onLinksChanged() {
+        EventFilter filter = deriveEventFilter();
+        if (filter.equals(eventFilter)) {
+            return;
+        }
+
+        logger.debug("Event filter changed to {}", filter);
+        eventFilter = filter;
+        if (state != DeviceState.ONLINE) {
+            // Die nächste Subscription nimmt ihn mit
+            return;
+        }
+
+        List<String> subscribed = new ArrayList<>();
+        for (String topic : STATIC_TOPICS) {
+            if (subscriptionService.doesSubscriptionExists(this, topic)) {
+                subscribed.add(topic);
+            }
+        }
+        if (!subscribed.isEmpty()) {
+            subscribe(subscribed);
+        }
+    }
+
+    /**
+     * Wenn das Device noch erreichbar ist, wird remote unsubscribed, damit es synchron bleibt. Sonst hat es eh keine
+     * Subscriptions mehr und sie werden nur lokal entfernt. Lokal müssen sie in jedem Fall weg, da der
+     * SubscriptionService noch andere Handler betreut.
+     */
+    private void onDispose() {
+        coordinator.cancel(this);
+        retries.cancel(this);
+        if (present && !suspended) {
+            unsubscribeFromAllTopics();
+        } else {
+            unsubscribeFromAllTopicsLocaly();
+        }
+        state = DeviceState.OFFLINE;
+    }
+
+    /**
+     * Only once the device was seen and all static topics are subscribed
+     */
+    private void enterOnline() {
+        if (!present) {
+            // Die Subscription vor dem Discovery hat geklappt, die erste Alive Message bringt das Thing online
+            return;
+        }
+        if (suspended) {
+            // Der Circuit Breaker meldet sich, sobald das Device wieder erreichbar ist
+            return;
+        }
+        enter(DeviceState.ONLINE, ThingStatus.ONLINE, ThingStatusDetail.NONE, null);
+    }
+
+    private void enter(DeviceState next, ThingStatus status, ThingStatusDetail detail, @Nullable String description) {
+        if (state != next) {
+            logger.debug("{} -> {}", state, next);
+            state = next;
+            alive.invalidate();
+        }
+        updateStatus(status, detail, description);
+    }
+
+    private boolean isFullySubscribed() {
+        for (String topic : STATIC_TOPICS) {
+            if (!subscriptionService.doesSubscriptionExists(this, topic)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /*
      * ###############################################################################################
      * #
@@ -250,15 +698,44 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
      * #
      * ###############################################################################################
      */
-    private void subscribeForAllStaticTopics() {
+    /**
+     * Subscribes for all static topics that aren't subscribed yet
+     *
+     * @return completes when the subscription is done, null if nothing was missing
+     */
+    private @Nullable CompletableFuture<?> subscribeForAllStaticTopics() {
+        List<String> missing = new ArrayList<>();
         for (String topic : STATIC_TOPICS) {
-            subscribe(topic);
+            if (!subscriptionService.doesSubscriptionExists(this, topic)) {
+                missing.add(topic);
+            }
+        }
+        if (!missing.isEmpty()) {
+            return subscribe(missing);
         }
+        return null;
     }
 
-    private void subscribe(String topic) {
-        logger.trace("Subscribing for topic {} with bootid {}", TOPIC_NEW_MOTION, bootid);
-        subscriptionService.subscribe(this, topic, bootid);
+    /**
+     * All topics go to the device in one request, queued behind the subscriptions of the other handlers. Devices that
+     * aren't discovered yet go last.
+     */
+    private CompletableFuture<?> subscribe(Collection<String> topics) {
+        logger.trace("Subscribing for topics {} with bootid {}", topics, bootid);
+        return coordinator.submit(this, topics, bootid, present);
+    }
+
+    /**
+     * After a reconnect the device may still hold subscriptions that were given up locally in the meantime. Once the
+     * subscription is done, both sides are compared and only the differences are sent.
+     */
+    private void reconcileAfter(CompletableFuture<?> subscription) {
+        subscription.whenComplete((result, e) -> {
+            // Abgebrochen, weil das Device wieder weg ist
+            if (e == null && !disposed) {
+                subscriptionService.reconcileAsync(this, bootid);
+            }
+        });
     }
 
     private void unsubscribeFromAllTopics() {
@@ -267,18 +744,16 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
     }
 
     private void unsubscribeFromAllStaticTopics() {
-        for (String topic : STATIC_TOPICS) {
-            unsubscribe(topic);
-        }
+        unsubscribe(STATIC_TOPICS);
     }
 
     private void unsubscribeFromAllDynamicTopics() {
         // TODO: dynamic topic unsubscription
     }
 
-    private void unsubscribe(String topic) {
-        logger.trace("Unsubscribing from topic {} with bootid {}", TOPIC_NEW_MOTION, bootid);
-        subscriptionService.unsubscribe(this, topic, bootid);
+    private void unsubscribe(Collection<String> topics) {
+        logger.trace("Unsubscribing from topics {} with bootid {}", topics, bootid);
+        subscriptionService.unsubscribeAsync(this, topics, bootid);
     }
 
     private void unsubscribeFromAllTopicsLocaly() {
@@ -302,134 +777,36 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
 
     @Override
     public String getIdentifier() {
-        return getThing().getProperties().get(UDN);
+        return identifier;
     }
 
-    /*
-     * Should happen normaly
-     *
-     * (non-Javadoc)
-     *
-     * @see org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber#onFullSuccessfulSubscription(java.lang.String)
-     */
     @Override
     public void onFullSuccessfulSubscription(String topic) {
         logger.debug("Subscribed successful for {}", topic);
-        updateStatus(ThingStatus.ONLINE);
+        post(Kind.SUBSCRIBED, topic);
     }
 
-    /*
-     * Should never happen, the handler will only subscribe if he received an online signal. Even so, this case should
-     * be handled.
-     *
-     * In such case, all localy added subscriptions must be removed.
-     *
-     * (non-Javadoc)
-     *
-     * @see
-     * org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber#onPartialSucessfulSubscription(java.lang.String)
-     */
     @Override
     public void onPartialSucessfulSubscription(String topic) {
         logger.debug("Subscribed partialy successful for {}", topic);
-
-        if (isTopicStatic(topic)) {
-            // Static Subscriptions (topics)
-            logger.debug("This means full subscriptions failed. Removing all local subscriptions");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
-            unsubscribeLocaly(topic);
-        } else {
-            // Dynamic Subscriptions (topics)
-            /*
-             * Es sollten retrys geben. Für jetzt wird estmal das Versagen aller Retrys simuliert.
-             */
-            logger.debug("This means full subscriptions failed. Removing all local subscriptions");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
-            unsubscribeLocaly(topic);
-        }
+        post(Kind.SUBSCRIPTION_FAILED, topic);
     }
 
-    /*
-     * Should normaly happen if:
-     * 1) The device goes offline after the binding
-     * 2) The device and binding stay online but the binding want for whatever reason to unsubscribe for this topic
-     *
-     * (non-Javadoc)
-     *
-     * @see
-     * org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber#onFullSuccessfullUnsubscription(java.lang.String)
-     */
     @Override
     public void onFullSuccessfullUnsubscription(String topic) {
-        logger.debug("Unsubscribed successful for {}", topic);
-        updateStatus(ThingStatus.ONLINE);
+        post(Kind.UNSUBSCRIBED, topic);
     }
 
-    /*
-     * Should happen if:
-     * 1) The device crashes (no possibility to send byebye message, therefor the registry entry expires) and in the
-     * time before the device is identified as offline the binding wants to go offline
-     * 2) The devices goes offline before the binding and has no mechanism to wait a couple of seconds to get all
-     * expected removing requests
-     * 3) The device crashes (no possibility to send byebye message, therefor the registry entry expires) and in the
-     * time before the device is identified as offline the binding want to cancel it's subscription for whatever reason
-     * but wants to stay online.
-     *
-     * Solutions:
-     * 1 & 2) In any case the device is defently offline and the binding is about to go offline. This means both parts
-     * will forget about all subscriptions. The local subscription got already removed. Even if multiple alive
-     * notifications of the device were lost and therefor the device was detected falsly as offline, with the next boot
-     * of the binding, the device will notice a new bootid for the subscriptions and remove all old and wrong
-     * subscriptions, that couldn't be removed remotly by the binding. In the end: For these cases is no special
-     * handling needed.
-     *
-     * 3) This case varies a bit. If the binding wants to cancel a subscription and stays online and the device is
-     * online but not reachable, then their subscriptioninformations aren't synchronized anymore. The device will keep
-     * sending informations refering the topic which the callbackListener of the subscription manager will still
-     * receive. If I remember correctly the subscription manager should ignore such events, but he still has to accept
-     * and check them. This costs time. Therefor it would be a good idea, to retry the remote unsubscription twice with
-     * a bit of delay. If the device was just unreachable, there is a great chance it's reachable then. If it still
-     * isn't one must assume the device is offline.
-     * It can then happen, that the binding will reregister for a topic it already has with the same bootid. This
-     * happens because there was no reboot and the device never received an information regarding deleting this
-     * subscription. The device must be ready to handle such a case.
-     *
-     * (non-Javadoc)
-     *
-     * @see
-     * org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber#onPartialSucessfulUnsubscription(java.lang.String)
-     */
     @Override
     public void onPartialSucessfulUnsubscription(String topic) {
         logger.debug("Unsubscribed partialy successful for {}", topic);
-        if (isTopicStatic(topic)) {
-            /*
-             * Es muss nicht unternommen werden, lokal wurde die Subscription bereits entfernt.
-             * Bei einer erneuten Subscription kann das Device damit umgehen. Außerdem findet eine neue Subscription der
-             * static Topics eh nur dann statt wenn das System neugestartet wird und dann gibt es eine neue Bootid.
-             *
-             * Obwohl es zu einer PSU nur im dispose Vorgang kommen kann, also der Handler offline geht, wird der
-             * DeviceStatus zur semantischen Korrektheit trotzdem auf offline gesetzt, auch wenn es eigentlich redundant
-             * ist.
-             */
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
-        } else {
-            /*
-             * Sollte eine Unsubscription eines dynamischen Topics fehlschlagen gibt es zwei Möglichkeiten:
-             * 1) Man versucht einige Retrys. Damit wird dem Device die Chance gegeben wieder erreichbar zu sein, bevor
-             * es den OfflineStatus bekommt. Sollten mehrere Retrys fehlschlagen, wird davon ausgegangen, dass das
-             * Device Offline ist. Möglichkeit 2) greift dann.
-             *
-             * 2) Eine Kommunikation war nicht möglich. Der Status des Device wird auf offline gesetzt. Die lokale
-             * Subscription wurde bereits entfernt. Ein explizites Entfernen muss daher also nicht angestoßen werden.
-             * Sollte das Device fehlerhaft alss offline gekennzeichnet werden (es war nur nicht erreichbar), so ist der
-             * worst case, dass das Device neue Events für die bei ihm nicht entfernte Subscription an den
-             * SubscriptionService des Bindings sendet. Das Binding reagiert darauf und leitet die Events nicht weiter.
-             * Sollte sich für dieses dynamische Topic im selben Betrieb erneut subscribed werden, so kann das Device
-             * damit umgehen.
-             */
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
-        }
+        post(Kind.UNSUBSCRIPTION_FAILED, topic);
+    }
+
+    private void post(Kind kind, String topic) {
+        Signal signal = new Signal(kind, generation);
+        signal.topic = topic;
+        mailbox.post(signal);
     }
 
     private boolean isTopicStatic(String topic) {
@@ -440,7 +817,7 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
      * ###############################################################################################
      * #
      * #
-     * # UPNP REGISTRY LISTENER STUFF
+     * # EVENTS
      * #
      * #
      * ###############################################################################################
@@ -448,19 +825,26 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
      * (non-Javadoc)
      *
      * @see org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber#onSubcriptionEvent(java.lang.String,
-     * java.util.Map)
+     * org.eclipse.smarthome.binding.drehbinding.eventing.CallbackFrame)
      */
     @Override
-    public void onSubcriptionEvent(String topic, Map<String, String> values) {
+    public void onSubcriptionEvent(String topic, CallbackFrame values) {
         logger.trace("An Event happend for me!");
 
         switch (topic) {
             case TOPIC_NEW_MOTION:
                 String name = values.get(NAME);
-                updateState(CHANNEL_LAST_MOTION, new StringType(name));
+                if (!isEventNeeded(name)) {
+                    logger.trace("Filtered event {}", name);
+                    break;
+                }
+                if (mapping.feeds(CHANNEL_LAST_MOTION, name)) {
+                    updateState(CHANNEL_LAST_MOTION, new StringType(name));
+                }
+                if (mapping.feeds(CHANNEL_EVENT_TIME, name)) {
+                    updateState(CHANNEL_EVENT_TIME, new DateTimeType());
+                }
                 logger.debug("Done");
-                updateState(CHANNEL_EVENT_TIME, new DateTimeType());
-                logger.debug("DONE");
                 break;
 
             default:
@@ -468,218 +852,129 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
         }
     }
 
-    @Override
-    public void remoteDeviceDiscoveryStarted(@Nullable Registry registry, @Nullable RemoteDevice device) {
-        // TODO Auto-generated method stub
+    /**
+     * Devices that don't know the filter parameters send every event, the filter is applied here as well
+     */
+    private boolean isEventNeeded(String gesture) {
+        EventFilter filter = eventFilter;
+        if (!filter.accepts(gesture)) {
+            return false;
+        }
 
+        long now = System.currentTimeMillis();
+        if (filter.getMinInterval() > 0 && now - lastEventTime < filter.getMinInterval()) {
+            return false;
+        }
+        lastEventTime = now;
+        return true;
     }
 
     @Override
-    public void remoteDeviceDiscoveryFailed(@Nullable Registry registry, @Nullable RemoteDevice device,
-            @Nullable Exception ex) {
-        // TODO Auto-generated method stub
-
+    public EventFilter getEventFilter() {
+        return eventFilter;
     }
 
     @Override
-    public void remoteDeviceAdded(@Nullable Registry registry, @Nullable RemoteDevice device) {
-        if (device == null) {
-            return;
-        }
-
-        if (!isDeviceRelevant(device)) {
-            return;
-        }
-
-        /*
-         * Spezialfall. Es kann vorkommen, dass gleichzeitig die Methoden remoteDeviceAdded und remoteDeviceUpdated
-         * betreten werden. Dies passsiert wenn (natürlich nicht deterministisch) es bereits einen ThingHandler bei
-         * Systemstart gab und das Device nicht zum allerersten Mal discovered wurde, sondern erneut discovered wurde.
-         * Mit Pech kann die Added Methode gefeuert werden und nahe zu zeitgleich wird vom Device eine AliveMessage
-         * ausgesendet und vom Handler aufgefangen welcher dann die Updated Methode aufruft. Dadurch können beide
-         * Methoden nahe zur gleichen Zeit aufgerufen werden.
-         *
-         * Entweder die Added Methode erreicht das Lock, dann muss verhindert werden, dass die Update Methode denkt sie
-         * müsste die Added Methode simulieren ODER aber doe Update Methode erreicht zuerst ihr Lock, und simuliert dann
-         * die Added Methode. Dann sind zwei Added Methoden im Spiel, aber nur eine darf ausgeführt werden, dafür ist
-         * dann der else Zweig da, dass eine Methode returnen kann (Theoretisch könnte man diese dann auch auf ein
-         * Update abbilden).
-         */
-        addedFlagLock.lock();
-        if (!addedFlag) {
-            addedFlag = true;
-            addedFlagLock.unlock();
-        } else {
-            addedFlagLock.unlock();
-            return;
-        }
-
-        logger.debug("Added Device");
-
-        logger.debug("Set thing status: online!");
-        updateStatus(ThingStatus.ONLINE);
-        synchronized (modificationLock) {
-            subscribeForAllStaticTopics();
-        }
+    public void channelLinked(ChannelUID channelUID) {
+        super.channelLinked(channelUID);
+        mailbox.post(new Signal(Kind.LINKS_CHANGED, generation));
     }
 
-    /*
-     * Infos zur Methode:
-     *
-     * 1) Diese Methode kann aktuell nicht dazu genutzt werden um ein Update der Bootid zu überprüfen da JUPNP die
-     * Bootid momentan nicht unterstützt. Außerdem sollte das eh nicht nötig sein, da EIGENTLICH JUPNP dies automatisch
-     * erkennen sollte
-     *
-     * 2) Es kann vorkommen, dass dieser Listener noch nicht registriert ist, wenn die M-SEARCH Message beim Systemstart
-     * rausgeschickt wird und eine Antwort zurück kommt. Das Device wird dann zwar in der Registery aufgenommen, aber
-     * die Callback Methode (Device added) wird nicht gecallt. Sie kann dann auch nicht durch weitere Alive Messages
-     * aktiviert werden, da das Device sich ja bereits in der Registery befindet. Das Device wird also niemals in diesem
-     * Listener als hinzugefügt bekannt, obwohl es das eigentlich aus Sicht der Registery ist. Die Update Methode wird
-     * allerdings trotzdem gecallt und damit könnte man ein Workaround für den Spezialfall basteln, dass die Methode
-     * remoteDeviceAdded(...) niemals gecallt wird. Es könnte ein boolsches Flag gesetzt werden, welches nachhält, ob
-     * die Methode bereits gecallt wurde.Dieses Flag wird dann bei jedem Updatecall überprüft. Sollte erkannt werden,
-     * dass das Flag noch nicht gecallt wurde (die logische Schlussfolgerung aus Sicht des Listener wäre es dann, dass
-     * die Added Methode nie gecalled wurde), so kann die Added Methode simuliert und nachgeholt werden.
-     *
-     * (non-Javadoc)
-     *
-     * @see org.jupnp.registry.RegistryListener#remoteDeviceUpdated(org.jupnp.registry.Registry,
-     * org.jupnp.model.meta.RemoteDevice)
-     */
     @Override
-    public void remoteDeviceUpdated(@Nullable Registry registry, @Nullable RemoteDevice device) {
-        if (device == null) {
-            return;
-        }
-
-        if (!isDeviceRelevant(device)) {
-            return;
-        }
-
-        logger.trace("Received an update for my device!");
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        mailbox.post(new Signal(Kind.LINKS_CHANGED, generation));
+    }
 
-        /*
-         * Um einen den in remoteDeviceAdded erklärten Spezialfall abzufangen
-         */
-        addedFlagLock.lock();
-        if (!addedFlag) {
-            addedFlag = true;
-            addedFlagLock.unlock();
-            logger.debug("Update instead of addition. Therefor simulating added");
-            logger.error("!!!!!!! Spezialfall ist eingetreten !!!!!!!!!!!!!");
-            remoteDeviceAdded(registry, device);
-            return;
+    /**
+     * The device sends the gestures that feed at least one linked channel, see {@link GestureMapping}. The gestures
+     * configured on the thing only narrow them further.
+     */
+    private EventFilter deriveEventFilter() {
+        List<String> linked = new ArrayList<>();
+        for (String channel : mapping.getChannels()) {
+            if (isLinked(channel)) {
+                linked.add(channel);
+            }
         }
-        addedFlagLock.unlock();
-
-        // Hier beginnt die eigentliche Update Methode
-        // Wenn das Device eine Alive Message geschickt hat muss es folglich online sein
-        logger.debug("Updating thing status to online");
-        updateStatus(ThingStatus.ONLINE);
 
-        /*
-         * Falls ein Static Service noch nicht Subscribed ist muss ein Subscritpionversuch erfolgen
-         */
-        /*
-         * TODO: Denke über folgenden Fehler nach: Was passiert wenn der Subscribe Prozess gleichzeitig mit der
-         * Überprüfung der forschleife stattfindet. Es könnte zu Fehlern kommen, je nachdem in welcher Reihenfolge die
-         * Subscriptions hinzugefügt und geprüft werden.
-         *
-         * Bsp:
-         * Subs A, B und C sollen hinzugefügt werden. Zur gleichen zeit wird von einem anderen Thread
-         * remoteDeviceUpdated aufgerufen und doesSubscriptionExists wird aufgerufen.
-         * Es passiert folgende Reihenfolge (+ = hinzugefügt, ! = geprüft):
-         * A+, B+, A!, B!, C!, C+
-         *
-         * A und B während korrekt erkannt gewesen, doch C wurde erst geprüft und dann hinzugefügt, wodurch es
-         * als fehlend betrachtet wird und eine erneute Subscription angestoßen wird.
-         *
-         * Dies muss irgendwie verhindert werden!
-         */
-        synchronized (modificationLock) {
-            for (String topic : STATIC_TOPICS) {
-                if (!subscriptionService.doesSubscriptionExists(this, topic)) {
-                    logger.debug("It was not subscribed to static topic {}! Trying it now again!", topic);
-                    subscribe(topic);
+        DrehbindingConfiguration config = this.config;
+        List<String> gestures = new ArrayList<>();
+        if (config != null && config.gestures != null) {
+            for (String gesture : config.gestures.split(",")) {
+                if (!gesture.trim().isEmpty()) {
+                    gestures.add(gesture.trim());
                 }
             }
         }
-
+        return mapping.filterFor(linked, gestures, config != null ? config.minEventInterval : 0);
     }
 
-    @Override
-    public void remoteDeviceRemoved(@Nullable Registry registry, @Nullable RemoteDevice device) {
-        if (device == null) {
-            return;
-        }
+    /*
+     * ###############################################################################################
+     * #
+     * #
+     * # UPNP REGISTRY STUFF
+     * #
+     * #
+     * ###############################################################################################
+     */
+    /*
+     * Der RemoteDeviceDispatcher hat Hersteller, Modell und UDN schon geprüft, hier kommt nur das eigene Device an.
+     */
+    void remoteDeviceAdded(RemoteDevice device) {
+        postDevice(Kind.DEVICE_ADDED, device);
+    }
 
-        if (!isDeviceRelevant(device)) {
+    /*
+     * jUPnP unterstützt die Bootid momentan nicht, ein Neustart des Devices ist hier also nicht zu erkennen.
+     *
+     * Kam die Antwort auf das M-SEARCH beim Systemstart, bevor der Handler registriert war, wird remoteDeviceAdded
+     * nie aufgerufen. Das erste Update wird dann als Discovery behandelt, siehe onDeviceAlive.
+     */
+    void remoteDeviceUpdated(RemoteDevice device) {
+        // Der Normalfall: nichts hat sich geändert und alles ist subscribed
+        if (alive.isQuiet(device) && isFullySubscribed()) {
             return;
         }
-
-        logger.debug("Set thing status: offline!");
-        synchronized (modificationLock) {
-            updateStatus(ThingStatus.OFFLINE);
-
-            // Problem: Expiring und ByeBye können nicht unterschieden werden.
-            /*
-             * Es ist erkannt worden, dass das Device offline ist! Es muss also davon ausgegangen werden, dass das
-             * Device alle Subscriptions verwerfen wird bzw hat. Sollte das Device allerdings nur offline gegangen sein
-             * weil es das Binding nicht erreichen kann, heißt es in Wirklichkeit noch online, aber es kommen keine
-             * Alive messages mehr an, so muss das Binding dennoch davon ausgehen, dass das Device wirklich offline ist.
-             * Beim nächsten "online gehen" (in Wirklichkeit nur Wiedererreichbarkeit) kann eine Asynchronität
-             * vorliegen. Es könnten innerhalb des Devices noch Subscriptions vorliegen, für die sich das Binding schon
-             * lokal unsubscribed hat. Aus Sicht der Bindings ist diese Asynchronität kein Problem, da der
-             * SubscriptionService solche Informationen einfach verwirft (er könnte in solchen Fällen gegebenfalls das
-             * Binding dazu auffordern die Subscription auch remote bei sich zu entfernen). Das Binding muss allerdings
-             * bereit sein neue Subscriptions des selben Subscriber für das selbe Topic mit der selben Bootid
-             * entgegenzunehmen. In solch einem Fall soll das Device die alten Subscription mit der neuen überschreiben
-             * und schon sind Binding und Device wieder synchron.
-             *
-             * Gegebenfalls kann dem Binding eine von hier aus aufgerufene FSU vorgaukeln nachdem es für all Topics
-             * lokal unsubscribed hat.
-             */
-            unsubscribeFromAllTopicsLocaly();
-        }
-
-        logger.debug("Resetting added Flag");
-        addedFlagLock.lock();
-        addedFlag = false;
-        addedFlagLock.unlock();
-
-    }
-
-    private boolean isDeviceRelevant(RemoteDevice device) {
-        String deviceUDN = device.getIdentity().getUdn().getIdentifierString();
-        String thingUDN = getThing().getProperties().get(UDN);
-        logger.trace("Found: {}", deviceUDN);
-        logger.trace("Looking for: {}", thingUDN);
-
-        return deviceUDN.equals(thingUDN);
+        postDevice(Kind.DEVICE_UPDATED, device);
     }
 
-    @Override
-    public void localDeviceAdded(@Nullable Registry registry, @Nullable LocalDevice device) {
-        // TODO Auto-generated method stub
-
+    void remoteDeviceRemoved(RemoteDevice device) {
+        postDevice(Kind.DEVICE_REMOVED, device);
     }
 
-    @Override
-    public void localDeviceRemoved(@Nullable Registry registry, @Nullable LocalDevice device) {
-        // TODO Auto-generated method stub
-
+    /**
+     * Runs on a jUPnP thread, must not block
+     */
+    private void postDevice(Kind kind, RemoteDevice device) {
+        Signal signal = new Signal(kind, generation);
+        signal.device = device;
+        mailbox.post(signal);
     }
 
-    @Override
-    public void beforeShutdown(@Nullable Registry registry) {
-        // TODO Auto-generated method stub
-
+    /**
+     * Takes over a changed address of the device, e.g. after it got a new DHCP lease
+     */
+    private void updateEndpoint(RemoteDevice device) {
+        String base = DeviceEndpointTable.baseOf(device);
+        if (endpoints.update(getIdentifier(), base)) {
+            updateProperty(HOST, base);
+        }
     }
 
-    @Override
-    public void afterShutdown() {
-        // TODO Auto-generated method stub
+    /**
+     * Runs on the thread of the REST call, must not block
+     */
+    private void breakerStateChanged(String host, CircuitBreaker.State breakerState) {
+        DeviceEndpoint endpoint = endpoints.get(getIdentifier());
+        if (disposed || endpoint == null || !endpoint.getHostKey().equals(host)) {
+            return;
+        }
 
+        Signal signal = new Signal(Kind.BREAKER_CHANGED, generation);
+        signal.breakerState = breakerState;
+        mailbox.post(signal);
     }
 
     /*
@@ -698,8 +993,8 @@ public class DrehbindingHandler extends BaseThingHandler implements Subscriber,
             logger.trace("================== CHANNEL INFORMATION ==================");
             logger.trace(channel.getAcceptedItemType());
             logger.trace(channel.getDescription());
-            logger.trace(channel.toString());
             logger.trace(channel.getChannelTypeUID().getAsString());
+            logger.trace(channel.toString());
             logger.trace(channel.getConfiguration().toString());
             logger.trace(channel.getKind().name());
             logger.trace(channel.getUID().getAsString());
@@ -15,12 +15,17 @@ package org.eclipse.smarthome.binding.drehbinding.handler;
 import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConfiguration;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTIOServiceImpl;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTServiceImpl;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandlerFactory;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
 import org.jupnp.UpnpService;
+import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
@@ -39,6 +44,27 @@ public class DrehbindingHandlerFactory extends BaseThingHandlerFactory {
 
     private UpnpService upnpService;
 
+    @Override
+    protected void activate(ComponentContext componentContext) {
+        super.activate(componentContext);
+        DrehbindingBindingConfiguration configuration = DrehbindingBindingConfiguration
+                .from(componentContext.getProperties());
+        RESTServiceImpl.configure(configuration);
+        SubscriptionServiceImpl.configure(configuration);
+        RemoteDeviceDispatcher.getInstance().start(upnpService.getRegistry(), configuration.initThreads);
+    }
+
+    @Override
+    protected void deactivate(ComponentContext componentContext) {
+        RemoteDeviceDispatcher.getInstance().stop();
+
+        // Sonst laufen die Threads weiter und die Konfiguration des nächsten Starts würde ignoriert
+        SubscriptionServiceImpl.reset();
+        RESTIOServiceImpl.reset();
+        RESTServiceImpl.reset();
+        super.deactivate(componentContext);
+    }
+
     @Override
     public boolean supportsThingType(ThingTypeUID thingTypeUID) {
         return SUPPORTED_THING_TYPES.contains(thingTypeUID);
@@ -50,7 +76,7 @@ public class DrehbindingHandlerFactory extends BaseThingHandlerFactory {
 
         if (THING_TYPE_DREHKNOPF.equals(thingTypeUID)) {
             logger.debug("Building a new Handler for {}", thing.getUID());
-            return new DrehbindingHandler(thing, upnpService);
+            return new DrehbindingHandler(thing);
         }
 
         return null;
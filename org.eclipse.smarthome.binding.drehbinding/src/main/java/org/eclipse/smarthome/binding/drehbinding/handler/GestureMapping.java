@@ -0,0 +1,113 @@
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.smarthome.binding.drehbinding.eventing.EventFilter;
+
+/**
+ * Which gestures feed which channel of the knob. The handler only updates a channel with the gestures mapped to it,
+ * and the device only has to send the gestures of the linked channels: the {@link EventFilter} is derived from this
+ * mapping, see {@link #filterFor(Collection, Collection, long)}.
+ *
+ * Is ThreadSafe, immutable
+ *
+ * @author Tristan
+ *
+ */
+final class GestureMapping {
+
+    /**
+     * Every gesture of the device
+     */
+    static final Set<String> ALL_GESTURES = Collections.emptySet();
+
+    /**
+     * Both channels show the last gesture, whichever it was
+     */
+    static final GestureMapping DEFAULT;
+
+    static {
+        Map<String, Set<String>> channels = new HashMap<>();
+        channels.put(CHANNEL_LAST_MOTION, ALL_GESTURES);
+        channels.put(CHANNEL_EVENT_TIME, ALL_GESTURES);
+        DEFAULT = new GestureMapping(channels);
+    }
+
+    // Channel -> Gesten, leer für alle
+    private final Map<String, Set<String>> channels;
+
+    /**
+     * @param channels channel id -> gestures feeding it, {@link #ALL_GESTURES} for all
+     */
+    GestureMapping(Map<String, Set<String>> channels) {
+        Map<String, Set<String>> copy = new HashMap<>();
+        for (Map.Entry<String, Set<String>> channel : channels.entrySet()) {
+            copy.put(channel.getKey(), Collections.unmodifiableSet(new TreeSet<>(channel.getValue())));
+        }
+        this.channels = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @return ids of the channels fed by gestures
+     */
+    Set<String> getChannels() {
+        return channels.keySet();
+    }
+
+    /**
+     * @return true if the gesture updates the channel
+     */
+    boolean feeds(String channel, String gesture) {
+        Set<String> gestures = channels.get(channel);
+        return gestures != null && (gestures.isEmpty() || gestures.contains(gesture));
+    }
+
+    /**
+     * The gestures the linked channels need. Without any linked channel the device needn't send anything.
+     *
+     * @param linked ids of the linked channels
+     * @param override gestures configured on the thing, narrows the derived ones. null or empty for none.
+     * @param minInterval minimum time in ms between two events, 0 for no limit
+     */
+    EventFilter filterFor(Collection<String> linked, Collection<String> override, long minInterval) {
+        Set<String> needed = new TreeSet<>();
+        boolean all = false;
+        for (String channel : linked) {
+            Set<String> gestures = channels.get(channel);
+            if (gestures == null) {
+                continue;
+            }
+            if (gestures.isEmpty()) {
+                all = true;
+            } else {
+                needed.addAll(gestures);
+            }
+        }
+        if (!all && needed.isEmpty()) {
+            return EventFilter.NONE;
+        }
+
+        if (override != null && !override.isEmpty()) {
+            if (all) {
+                needed.clear();
+                needed.addAll(override);
+            } else {
+                needed.retainAll(override);
+            }
+            all = false;
+            if (needed.isEmpty()) {
+                // Keine der konfigurierten Gesten wird von einem gelinkten Channel gebraucht
+                return EventFilter.NONE;
+            }
+        }
+
+        return EventFilter.of(all ? null : needed, minInterval);
+    }
+}
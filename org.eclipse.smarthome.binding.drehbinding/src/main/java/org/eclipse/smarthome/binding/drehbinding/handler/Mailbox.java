@@ -0,0 +1,74 @@
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands the messages posted from any thread to one receiver, one after another and in the order they were posted.
+ * Posting never blocks and takes no lock. The receiver runs on the executor, but never on two threads at the same
+ * time, so it can keep its state without synchronization.
+ *
+ * The poster that finds the mailbox empty schedules the drain. The drain runs until the counter of unreceived
+ * messages is back at zero. If the executor rejects the drain, e.g. while the binding stops, the poster drains the
+ * mailbox itself, so no message (above all a dispose) gets stuck behind a drain that never runs.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+class Mailbox<M> {
+
+    private final Logger logger = LoggerFactory.getLogger(Mailbox.class);
+
+    private final Queue<M> messages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Executor executor;
+    private final Consumer<M> receiver;
+
+    /**
+     * @param executor runs the drain, must not run a task twice
+     * @param receiver gets every message, must not block
+     */
+    Mailbox(Executor executor, Consumer<M> receiver) {
+        this.executor = executor;
+        this.receiver = receiver;
+    }
+
+    void post(M message) {
+        messages.add(message);
+        if (pending.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Executor rejected the mailbox, draining on the posting thread: {}", e.getMessage());
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        do {
+            M message = messages.poll();
+            try {
+                receiver.accept(message);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to process {}: {}", message, e.toString(), e);
+            }
+        } while (pending.decrementAndGet() > 0);
+    }
+
+    /**
+     * @return number of messages not received yet
+     */
+    int getPending() {
+        return pending.get();
+    }
+}
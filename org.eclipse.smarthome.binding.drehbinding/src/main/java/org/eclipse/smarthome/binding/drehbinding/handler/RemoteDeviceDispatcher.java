@@ -0,0 +1,265 @@
+package org.eclipse.smarthome.binding.drehbinding.handler;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.jupnp.model.meta.DeviceDetails;
+import org.jupnp.model.meta.LocalDevice;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.types.UDN;
+import org.jupnp.registry.Registry;
+import org.jupnp.registry.RegistryListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The only {@link RegistryListener} of the binding. Every device on the LAN announces itself every few seconds, so
+ * the devices of other manufacturers are dropped right away, and the others are handed to their handler through a
+ * UDN -> handler map. The handlers only ever see the notifications of their own device.
+ *
+ * Runs on the jUPnP registry threads, the handlers must not block.
+ *
+ * Also looks up the devices of newly initialized handlers on its own threads. The registry is synchronized and busy
+ * at startup, so the framework thread initializing the things doesn't wait for it.
+ *
+ * The mailboxes of the handlers run on the handler threads, see {@link #execute(Runnable)}.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+/*
+ * Singleton, damit die Handler sich selbst an- und abmelden können, ohne dass die Factory sie verdrahten muss
+ */
+public class RemoteDeviceDispatcher implements RegistryListener {
+
+    private final Logger logger = LoggerFactory.getLogger(RemoteDeviceDispatcher.class);
+
+    private static final String INIT_THREAD_NAME = "drehbinding-init";
+    private static final String HANDLER_THREAD_NAME = "drehbinding-handler";
+    private static final int HANDLER_THREADS = 4;
+
+    private static RemoteDeviceDispatcher instance;
+
+    private final ConcurrentMap<String, DrehbindingHandler> handlers = new ConcurrentHashMap<>();
+
+    // Lookups, die noch nicht fertig sind. stop() beendet sie mit null, sonst blieben ihre Handler UNKNOWN
+    private final Set<CompletableFuture<RemoteDevice>> lookups = ConcurrentHashMap.newKeySet();
+
+    private volatile Registry registry;
+
+    private ThreadPoolExecutor initExecutor;
+    private ThreadPoolExecutor handlerExecutor;
+
+    private RemoteDeviceDispatcher() {
+
+    }
+
+    public static synchronized RemoteDeviceDispatcher getInstance() {
+        if (instance == null) {
+            instance = new RemoteDeviceDispatcher();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Listens to the registry until {@link #stop()}
+     *
+     * @param initThreads number of threads for {@link #lookupAsync(String)}
+     */
+    public synchronized void start(Registry registry, int initThreads) {
+        if (this.registry == registry) {
+            return;
+        }
+
+        stop();
+        initExecutor = new ThreadPoolExecutor(initThreads, initThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory(INIT_THREAD_NAME));
+        initExecutor.allowCoreThreadTimeOut(true);
+        handlerExecutor = new ThreadPoolExecutor(HANDLER_THREADS, HANDLER_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory(HANDLER_THREAD_NAME));
+        handlerExecutor.allowCoreThreadTimeOut(true);
+        this.registry = registry;
+        registry.addListener(this);
+    }
+
+    public synchronized void stop() {
+        if (registry != null) {
+            registry.removeListener(this);
+            registry = null;
+        }
+        if (initExecutor != null) {
+            initExecutor.shutdownNow();
+            initExecutor = null;
+        }
+        for (CompletableFuture<RemoteDevice> lookup : lookups) {
+            lookup.complete(null);
+        }
+        if (handlerExecutor != null) {
+            // Kein shutdownNow, die Mailboxen in der Queue sollen noch leer laufen
+            handlerExecutor.shutdown();
+            handlerExecutor = null;
+        }
+    }
+
+    /**
+     * Runs a mailbox drain on the handler threads. Each mailbox drains on one thread at a time, so a slow handler
+     * only holds up one of the threads, never the event delivery.
+     *
+     * @throws RejectedExecutionException if the dispatcher isn't started
+     */
+    void execute(Runnable task) {
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            executor = handlerExecutor;
+        }
+        if (executor == null) {
+            throw new RejectedExecutionException("Dispatcher is stopped");
+        }
+        executor.execute(task);
+    }
+
+    /**
+     * Looks the device up in the registry on the init threads
+     *
+     * @return completes with the device, or null if it isn't known (yet) or the dispatcher stopped in the meantime.
+     *         Always completes, never exceptionally.
+     */
+    synchronized CompletableFuture<RemoteDevice> lookupAsync(String udn) {
+        Registry current = registry;
+        if (udn == null || current == null || initExecutor == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<RemoteDevice> lookup = new CompletableFuture<>();
+        lookups.add(lookup);
+        lookup.whenComplete((device, e) -> lookups.remove(lookup));
+        try {
+            initExecutor.execute(() -> {
+                try {
+                    lookup.complete(current.getRemoteDevice(new UDN(udn), false));
+                } catch (RuntimeException e) {
+                    logger.warn("Looking up {} failed: {}", udn, e.toString());
+                    lookup.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lookup.complete(null);
+        }
+        return lookup;
+    }
+
+    /**
+     * The handler gets the notifications of the device with the UDN from now on. A handler registered before for the
+     * same UDN is replaced.
+     */
+    void register(String udn, DrehbindingHandler handler) {
+        if (udn == null) {
+            return;
+        }
+
+        DrehbindingHandler previous = handlers.put(udn, handler);
+        if (previous != null && previous != handler) {
+            logger.debug("Replaced the handler of {}", udn);
+        }
+    }
+
+    /**
+     * Only removes the handler if it is still the registered one, so a late dispose doesn't remove its successor
+     */
+    void unregister(String udn, DrehbindingHandler handler) {
+        if (udn != null) {
+            handlers.remove(udn, handler);
+        }
+    }
+
+    /**
+     * @return number of registered handlers
+     */
+    public int getHandlers() {
+        return handlers.size();
+    }
+
+    private DrehbindingHandler handlerOf(RemoteDevice device) {
+        if (device == null || handlers.isEmpty() || !isDrehknopf(device)) {
+            return null;
+        }
+
+        return handlers.get(device.getIdentity().getUdn().getIdentifierString());
+    }
+
+    private static boolean isDrehknopf(RemoteDevice device) {
+        DeviceDetails details = device.getDetails();
+        if (details == null || details.getManufacturerDetails() == null || details.getModelDetails() == null) {
+            return false;
+        }
+
+        return DEVICE_MANUFACTURER.equalsIgnoreCase(details.getManufacturerDetails().getManufacturer())
+                && DEVICE_MODEL.equalsIgnoreCase(details.getModelDetails().getModelName());
+    }
+
+    @Override
+    public void remoteDeviceDiscoveryStarted(Registry registry, RemoteDevice device) {
+
+    }
+
+    @Override
+    public void remoteDeviceDiscoveryFailed(Registry registry, RemoteDevice device, Exception ex) {
+
+    }
+
+    @Override
+    public void remoteDeviceAdded(Registry registry, RemoteDevice device) {
+        DrehbindingHandler handler = handlerOf(device);
+        if (handler != null) {
+            handler.remoteDeviceAdded(device);
+        }
+    }
+
+    @Override
+    public void remoteDeviceUpdated(Registry registry, RemoteDevice device) {
+        DrehbindingHandler handler = handlerOf(device);
+        if (handler != null) {
+            handler.remoteDeviceUpdated(device);
+        }
+    }
+
+    @Override
+    public void remoteDeviceRemoved(Registry registry, RemoteDevice device) {
+        DrehbindingHandler handler = handlerOf(device);
+        if (handler != null) {
+            handler.remoteDeviceRemoved(device);
+        }
+    }
+
+    @Override
+    public void localDeviceAdded(Registry registry, LocalDevice device) {
+
+    }
+
+    @Override
+    public void localDeviceRemoved(Registry registry, LocalDevice device) {
+
+    }
+
+    @Override
+    public void beforeShutdown(Registry registry) {
+
+    }
+
+    @Override
+    public void afterShutdown() {
+
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2014,2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.smarthome.binding.drehbinding.internal;
+
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
+import java.util.Dictionary;
+
+import org.eclipse.smarthome.binding.drehbinding.eventing.OverflowPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DrehbindingBindingConfiguration} class contains fields mapping the binding configuration parameters
+ * (binding:drehbinding). Missing or invalid values fall back to the defaults.
+ *
+ * @author Tristan - Initial contribution
+ */
+public class DrehbindingBindingConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(DrehbindingBindingConfiguration.class);
+
+    /**
+     * Number of events that can wait between the callback listener and the delivery, per delivery lane
+     */
+    public int eventQueueCapacity = 1024;
+
+    /**
+     * What happens to events when the queue is full
+     */
+    public OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Number of lanes delivering events to the handlers, each with its own thread. All events of a device are
+     * delivered in order on the same lane.
+     */
+    public int deliveryThreads = 2;
+
+    /**
+     * Number of threads doing the REST calls of asynchronous subscriptions
+     */
+    public int subscriptionThreads = 8;
+
+    /**
+     * Number of threads looking up the devices of newly initialized things in the jUPnP registry
+     */
+    public int initThreads = 4;
+
+    /**
+     * Number of devices subscribed at once, the others wait in the queue of the {@code SubscriptionCoordinator}.
+     * More than subscriptionThreads only makes the requests wait for a thread.
+     */
+    public int subscriptionConcurrency = 8;
+
+    /**
+     * Delay in ms before a failed subscription is retried the first time, doubled with every further attempt
+     */
+    public int retryBaseDelay = 1000;
+
+    /**
+     * Longest delay in ms between two retries
+     */
+    public int retryMaxDelay = 60000;
+
+    /**
+     * Retries per device until a subscription succeeds again
+     */
+    public int retryAttempts = 6;
+
+    /**
+     * Lease time in seconds asked for on subscription. Devices drop subscriptions that aren't renewed in time.
+     */
+    public int leaseDuration = 1800;
+
+    /**
+     * Time in seconds between two checks for leases to renew. All leases of a device due within it are renewed with
+     * one request.
+     */
+    public int leaseRenewWindow = 30;
+
+    /**
+     * Time in seconds between two reconciliations of the subscriptions of a device with the device, 0 disables them
+     */
+    public int reconcileInterval = 900;
+
+    /**
+     * Number of asynchronous subscription requests that can wait for a thread. Further requests fail right away.
+     */
+    public int subscriptionQueueCapacity = 256;
+
+    /**
+     * Time in ms to wait for a REST connection to a device
+     */
+    public int restConnectTimeout = 5000;
+
+    /**
+     * Time in ms to wait for the answer of a device to a REST call
+     */
+    public int restReadTimeout = 5000;
+
+    /**
+     * Maximum number of concurrent REST calls to one device, each one keeps its connection alive
+     */
+    public int restMaxConnectionsPerHost = 4;
+
+    /**
+     * Number of recent REST calls to a device the failure rate of its circuit breaker is computed over
+     */
+    public int breakerWindow = 10;
+
+    /**
+     * Number of calls to a device needed before its circuit can open
+     */
+    public int breakerMinCalls = 5;
+
+    /**
+     * Failed calls in percent of the window that open the circuit of a device
+     */
+    public int breakerFailureRate = 50;
+
+    /**
+     * Time in ms calls to a device fail right away once its circuit opened
+     */
+    public int breakerCooldown = 30000;
+
+    /**
+     * Port the callback listener binds, 0 for an ephemeral port
+     */
+    public int callbackPort = 0;
+
+    /**
+     * Number of callback listeners bound to the callback port with SO_REUSEPORT, each with its own thread
+     */
+    public int listenerShards = 1;
+
+    /**
+     * Transport the devices are asked to use for events, {@link DrehbindingBindingConstants#TRANSPORT_TCP},
+     * {@link DrehbindingBindingConstants#TRANSPORT_UDP} or {@link DrehbindingBindingConstants#TRANSPORT_MULTICAST}
+     */
+    public String transport = TRANSPORT_TCP;
+
+    /**
+     * Group the devices send their events to if the transport is multicast
+     */
+    public String multicastGroup = "239.255.42.1";
+
+    public int multicastPort = 5005;
+
+    /**
+     * Name of the network interface to join the group on, null to pick the first one that supports multicast
+     */
+    public String multicastInterface = null;
+
+    public static DrehbindingBindingConfiguration from(Dictionary<String, Object> properties) {
+        DrehbindingBindingConfiguration config = new DrehbindingBindingConfiguration();
+        if (properties == null) {
+            return config;
+        }
+
+        config.eventQueueCapacity = getInt(properties, "eventQueueCapacity", config.eventQueueCapacity, 1);
+        config.deliveryThreads = getInt(properties, "deliveryThreads", config.deliveryThreads, 1);
+        config.subscriptionThreads = getInt(properties, "subscriptionThreads", config.subscriptionThreads, 1);
+        config.initThreads = getInt(properties, "initThreads", config.initThreads, 1);
+        config.subscriptionConcurrency = getInt(properties, "subscriptionConcurrency",
+                config.subscriptionConcurrency, 1);
+        config.retryBaseDelay = getInt(properties, "retryBaseDelay", config.retryBaseDelay, 1);
+        config.retryMaxDelay = getInt(properties, "retryMaxDelay", config.retryMaxDelay, 1);
+        config.retryAttempts = getInt(properties, "retryAttempts", config.retryAttempts, 0);
+        config.leaseDuration = getInt(properties, "leaseDuration", config.leaseDuration, 1);
+        config.leaseRenewWindow = getInt(properties, "leaseRenewWindow", config.leaseRenewWindow, 1);
+        config.reconcileInterval = getInt(properties, "reconcileInterval", config.reconcileInterval, 0);
+        config.subscriptionQueueCapacity = getInt(properties, "subscriptionQueueCapacity",
+                config.subscriptionQueueCapacity, 1);
+        config.restConnectTimeout = getInt(properties, "restConnectTimeout", config.restConnectTimeout, 1);
+        config.restReadTimeout = getInt(properties, "restReadTimeout", config.restReadTimeout, 1);
+        config.restMaxConnectionsPerHost = getInt(properties, "restMaxConnectionsPerHost",
+                config.restMaxConnectionsPerHost, 1);
+        config.breakerWindow = getInt(properties, "breakerWindow", config.breakerWindow, 1);
+        config.breakerMinCalls = getInt(properties, "breakerMinCalls", config.breakerMinCalls, 1);
+        config.breakerFailureRate = Math.min(100,
+                getInt(properties, "breakerFailureRate", config.breakerFailureRate, 1));
+        config.breakerCooldown = getInt(properties, "breakerCooldown", config.breakerCooldown, 1);
+        config.multicastPort = getInt(properties, "multicastPort", config.multicastPort, 1);
+        config.callbackPort = getInt(properties, "callbackPort", config.callbackPort, 0);
+        config.listenerShards = getInt(properties, "listenerShards", config.listenerShards, 1);
+
+        Object policy = properties.get("overflowPolicy");
+        if (policy != null) {
+            try {
+                config.overflowPolicy = OverflowPolicy.valueOf(policy.toString().trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown overflow policy '{}' - using {}", policy, config.overflowPolicy);
+            }
+        }
+
+        Object transport = properties.get("transport");
+        if (transport != null) {
+            String value = transport.toString().trim().toLowerCase();
+            if (TRANSPORT_TCP.equals(value) || TRANSPORT_UDP.equals(value) || TRANSPORT_MULTICAST.equals(value)) {
+                config.transport = value;
+            } else {
+                logger.warn("Unknown transport '{}' - using {}", transport, config.transport);
+            }
+        }
+
+        config.multicastGroup = getString(properties, "multicastGroup", config.multicastGroup);
+        config.multicastInterface = getString(properties, "multicastInterface", config.multicastInterface);
+
+        return config;
+    }
+
+    private static String getString(Dictionary<String, Object> properties, String key, String defaultValue) {
+        Object value = properties.get(key);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        return value.toString().trim();
+    }
+
+    private static int getInt(Dictionary<String, Object> properties, String key, int defaultValue, int min) {
+        Object value = properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int result = value instanceof Number ? ((Number) value).intValue()
+                    : Integer.parseInt(value.toString().trim());
+            if (result >= min) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default
+        }
+
+        logger.warn("Invalid value '{}' for {} - using {}", value, key, defaultValue);
+        return defaultValue;
+    }
+}
@@ -46,6 +46,10 @@ public class DrehbindingBindingConstants {
 
     public static final String UDN = "udn";
 
+    // UPnP Device Details, compared ignoring case
+    public static final String DEVICE_MANUFACTURER = "tristan";
+    public static final String DEVICE_MODEL = "drehknopfprototype";
+
     // Static Topic Constants
     public static final String TOPIC_NEW_MOTION = "newMotionEvent";
     public static final Set<String> STATIC_TOPICS = Collections
@@ -56,6 +60,22 @@ public class DrehbindingBindingConstants {
     public static final Set<String> DYNAMIC_TOPICS = Collections
             .unmodifiableSet(Stream.of(PLACEHOLDER_TOPIC).collect(Collectors.toSet()));
 
+    // Callback Control Topics, never handed to a subscriber
+    public static final String TOPIC_STREAM_HELLO = "hello";
+    public static final String TOPIC_KEEPALIVE = "keepalive";
+
     // Topic Values Constants
     public static final String NAME = "name";
+    public static final String IDENTIFIER = "identifier";
+    public static final String SEQ = "seq";
+    public static final String BOOTID = "bootid";
+
+    // Callback Connection Modes offered on subscription
+    public static final String CONNECTION_MODE_SINGLE = "single";
+    public static final String CONNECTION_MODE_PERSISTENT = "persistent";
+
+    // Callback Transports offered on subscription
+    public static final String TRANSPORT_TCP = "tcp";
+    public static final String TRANSPORT_UDP = "udp";
+    public static final String TRANSPORT_MULTICAST = "multicast";
 }
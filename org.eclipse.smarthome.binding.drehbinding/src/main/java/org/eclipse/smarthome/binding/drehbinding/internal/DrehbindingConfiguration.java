@@ -20,7 +20,13 @@ package org.eclipse.smarthome.binding.drehbinding.internal;
 public class DrehbindingConfiguration {
 
     /**
-     * Sample configuration parameter. Replace with your own.
+     * Optional override: comma separated names of gestures. The device sends the gestures the linked channels need,
+     * this only narrows them further. Empty for no override.
      */
-    public String config1;
+    public String gestures;
+
+    /**
+     * Minimum time in ms between two events of the device, 0 for no limit
+     */
+    public int minEventInterval = 0;
 }
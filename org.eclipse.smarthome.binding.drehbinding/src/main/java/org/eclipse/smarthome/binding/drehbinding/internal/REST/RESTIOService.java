@@ -1,19 +1,73 @@
 package org.eclipse.smarthome.binding.drehbinding.internal.REST;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber;
 import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.RESTResponse;
+import org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation.SubscriptionResult;
 
 public interface RESTIOService {
 
-    public RESTResponse callService(String serviceIdentifier) throws IOException;
+    /**
+     * @param identifier device to call, its address must be in the {@code DeviceEndpointTable}
+     */
+    public RESTResponse callService(String identifier, String serviceIdentifier) throws IOException;
 
-    public RESTResponse callService(String serviceIdentifier, Map<String, String> params) throws IOException;
+    /**
+     * @param identifier device to call, its address must be in the {@code DeviceEndpointTable}
+     */
+    public RESTResponse callService(String identifier, String serviceIdentifier, Map<String, String> params)
+            throws IOException;
 
-    public void addSubscription(Subscriber subscriber, String topic, long bootid);
+    /**
+     * Subscribes at the device. Blocks until the device answered.
+     *
+     * @param ttl lease time in seconds asked for, the device may grant less
+     * @return true if the device accepted the subscription
+     */
+    public boolean addSubscription(Subscriber subscriber, String topic, long bootid, long ttl);
 
-    public void removeSubscription(Subscriber subscriber, String topic, long bootid);
+    /**
+     * Unsubscribes at the device. Blocks until the device answered.
+     *
+     * @return true if the device removed the subscription
+     */
+    public boolean removeSubscription(Subscriber subscriber, String topic, long bootid);
+
+    /**
+     * Subscribes for all topics at the device with a single request. Blocks until the device answered.
+     *
+     * @param ttl lease time in seconds asked for, the device may grant less
+     * @return the accepted topics and the granted lease time
+     */
+    public SubscriptionResult addSubscriptions(Subscriber subscriber, Collection<String> topics, long bootid,
+            long ttl);
+
+    /**
+     * Renews the leases of all topics at the device with a single request. Blocks until the device answered.
+     *
+     * @return the renewed topics and the granted lease time. A topic that wasn't renewed is no longer subscribed at
+     *         the device.
+     */
+    public SubscriptionResult renewSubscriptions(Subscriber subscriber, Collection<String> topics, long bootid,
+            long ttl);
+
+    /**
+     * Unsubscribes from all topics at the device with a single request. Blocks until the device answered.
+     *
+     * @return topic -> true if the device removed the subscription for the topic
+     */
+    public Map<String, Boolean> removeSubscriptions(Subscriber subscriber, Collection<String> topics, long bootid);
+
+    /**
+     * Fetches all topics the device holds for the subscriber and the bootid with a single request. Blocks until the
+     * device answered.
+     *
+     * @return the subscribed topics, null if the device couldn't be asked
+     */
+    public Set<String> getSubscriptions(Subscriber subscriber, long bootid);
 
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for the REST calls to one device. Keeps the outcome of the last {@code windowSize} calls. Once at
+ * least {@code minCalls} of them are known and the share of failures reaches {@code failureRate} percent, the
+ * circuit opens and calls fail without touching the network. After {@code cooldown} ms a single trial call is let
+ * through (half open): if it succeeds the circuit closes, otherwise it opens again for another cooldown.
+ *
+ * Only calls the device didn't answer count as failures, an unexpected response code or a malformed body still
+ * proves it is reachable.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class CircuitBreaker {
+
+    private final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Informed about every state change, on the thread of the call that caused it
+     */
+    public interface Listener {
+        void stateChanged(String host, State state);
+    }
+
+    private final String host;
+    private final int minCalls;
+    private final int failureRate;
+    private final long cooldown;
+    private final Listener listener;
+
+    // Geschützt durch this
+    private final boolean[] failed;
+    private int count = 0;
+    private int next = 0;
+    private int failures = 0;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialRunning = false;
+
+    /**
+     * @param host host:port of the device
+     * @param windowSize number of calls the failure rate is computed over
+     * @param minCalls calls needed before the circuit can open
+     * @param failureRate failures in percent of the window that open the circuit
+     * @param cooldown time in ms the circuit stays open
+     * @param listener
+     */
+    public CircuitBreaker(String host, int windowSize, int minCalls, int failureRate, long cooldown,
+            Listener listener) {
+        this.host = host;
+        this.failed = new boolean[windowSize];
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRate = failureRate;
+        this.cooldown = cooldown;
+        this.listener = listener;
+    }
+
+    /**
+     * @return false if the call must fail without network I/O. If true, the outcome must be reported with
+     *         {@link #record(boolean)}.
+     */
+    public boolean allowRequest() {
+        boolean halfOpened = false;
+        synchronized (this) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+
+                case OPEN:
+                    if (System.currentTimeMillis() - openedAt < cooldown) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    trialRunning = true;
+                    halfOpened = true;
+                    break;
+
+                case HALF_OPEN:
+                default:
+                    if (trialRunning) {
+                        return false;
+                    }
+                    trialRunning = true;
+                    break;
+            }
+        }
+
+        if (halfOpened) {
+            changed(State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    /**
+     * The call allowed by {@link #allowRequest()} wasn't made after all, e.g. because no connection became free. Lets
+     * the next call be the trial instead, the outcome isn't counted.
+     */
+    public synchronized void cancel() {
+        if (state == State.HALF_OPEN) {
+            trialRunning = false;
+        }
+    }
+
+    /**
+     * @param reachable true if the device answered
+     */
+    public void record(boolean reachable) {
+        State changedTo = null;
+        synchronized (this) {
+            switch (state) {
+                case HALF_OPEN:
+                    trialRunning = false;
+                    if (reachable) {
+                        reset();
+                        changedTo = State.CLOSED;
+                    } else {
+                        open();
+                        changedTo = State.OPEN;
+                    }
+                    break;
+
+                case CLOSED:
+                    if (failed[next]) {
+                        failures--;
+                    }
+                    failed[next] = !reachable;
+                    if (!reachable) {
+                        failures++;
+                    }
+                    next = (next + 1) % failed.length;
+                    count = Math.min(count + 1, failed.length);
+
+                    if (count >= minCalls && failures * 100 >= failureRate * count) {
+                        open();
+                        changedTo = State.OPEN;
+                    }
+                    break;
+
+                case OPEN:
+                default:
+                    // Calls, die vor dem Öffnen gestartet sind, ändern nichts mehr
+                    break;
+            }
+        }
+
+        if (changedTo != null) {
+            changed(changedTo);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    // Nur mit this aufrufen
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    // Nur mit this aufrufen
+    private void reset() {
+        state = State.CLOSED;
+        count = 0;
+        next = 0;
+        failures = 0;
+        for (int i = 0; i < failed.length; i++) {
+            failed[i] = false;
+        }
+    }
+
+    private void changed(State newState) {
+        logger.debug("Circuit of {} is {}", host, newState);
+        try {
+            listener.stateChanged(host, newState);
+        } catch (RuntimeException e) {
+            logger.warn("Circuit breaker listener failed: {}", e.toString());
+        }
+    }
+}
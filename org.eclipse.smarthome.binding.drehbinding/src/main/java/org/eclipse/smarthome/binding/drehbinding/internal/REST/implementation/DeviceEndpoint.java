@@ -0,0 +1,78 @@
+package org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * The REST URLs of one device, built once from its base URL
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+public class DeviceEndpoint {
+
+    private static final String FUNCTIONS_PATH = "webapi/functions/";
+
+    private final String base;
+    private final String hostKey;
+    private final URL subscribeUrl;
+    private final URL unsubscribeUrl;
+    private final URL renewUrl;
+    private final URL subscriptionsUrl;
+    private final URL functionsUrl;
+
+    /**
+     * @param base base URL of the device, e.g. {@code http://192.168.2.109:5000/}
+     * @throws MalformedURLException
+     */
+    public DeviceEndpoint(String base) throws MalformedURLException {
+        // Ohne / am Ende würde der letzte Pfadteil beim Auflösen ersetzt
+        this.base = base.endsWith("/") ? base : base + "/";
+
+        URL baseUrl = new URL(this.base);
+        hostKey = RESTServiceImpl.hostKey(baseUrl);
+        subscribeUrl = new URL(baseUrl, "subscribe");
+        unsubscribeUrl = new URL(baseUrl, "unsubscribe");
+        renewUrl = new URL(baseUrl, "renew");
+        subscriptionsUrl = new URL(baseUrl, "subscriptions");
+        functionsUrl = new URL(baseUrl, FUNCTIONS_PATH);
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    /**
+     * @return host:port, as reported by the {@link CircuitBreaker}
+     */
+    public String getHostKey() {
+        return hostKey;
+    }
+
+    public URL getSubscribeUrl() {
+        return subscribeUrl;
+    }
+
+    public URL getUnsubscribeUrl() {
+        return unsubscribeUrl;
+    }
+
+    public URL getRenewUrl() {
+        return renewUrl;
+    }
+
+    public URL getSubscriptionsUrl() {
+        return subscriptionsUrl;
+    }
+
+    public URL getFunctionUrl(String serviceIdentifier) throws MalformedURLException {
+        return new URL(functionsUrl, serviceIdentifier);
+    }
+
+    @Override
+    public String toString() {
+        return base;
+    }
+}
@@ -0,0 +1,100 @@
+package org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jupnp.model.meta.RemoteDevice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Device identifier (UDN) -> {@link DeviceEndpoint}. Filled by the handlers from the thing properties and from the
+ * jUPnP registry, so every REST call only has to look up the prepared URLs of its device.
+ *
+ * Base URLs are compared as strings. {@link URL#equals(Object)} would resolve the host names on every alive message.
+ * Entries stay after a handler is disposed: the unsubscription still needs them, and a new handler of the same thing
+ * finds its address right away.
+ *
+ * Is ThreadSafe
+ *
+ * @author Tristan
+ *
+ */
+/*
+ * Singleton, da alle Handler und der RESTIOService die selbe Tabelle brauchen
+ */
+public class DeviceEndpointTable {
+
+    private final Logger logger = LoggerFactory.getLogger(DeviceEndpointTable.class);
+
+    private static DeviceEndpointTable instance;
+
+    private final ConcurrentMap<String, DeviceEndpoint> endpoints = new ConcurrentHashMap<>();
+
+    private DeviceEndpointTable() {
+
+    }
+
+    public static synchronized DeviceEndpointTable getInstance() {
+        if (instance == null) {
+            instance = new DeviceEndpointTable();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Base URL of the device as announced via UPnP. Devices without URLBase in their description are reached on the
+     * host and port of their description.
+     *
+     * @return base URL, null if the device announced neither
+     */
+    public static String baseOf(RemoteDevice device) {
+        URL base = device.getDetails() != null ? device.getDetails().getBaseURL() : null;
+        if (base != null) {
+            return base.toExternalForm();
+        }
+
+        URL descriptor = device.getIdentity().getDescriptorURL();
+        if (descriptor == null) {
+            return null;
+        }
+
+        return descriptor.getProtocol() + "://" + descriptor.getAuthority() + "/";
+    }
+
+    /**
+     * Sets the base URL of the device, the URLs are only built again if it changed
+     *
+     * @return true if the base URL changed
+     */
+    public boolean update(String identifier, String base) {
+        if (identifier == null || base == null) {
+            return false;
+        }
+
+        DeviceEndpoint current = endpoints.get(identifier);
+        if (current != null && (current.getBase().equals(base) || current.getBase().equals(base + "/"))) {
+            return false;
+        }
+
+        try {
+            DeviceEndpoint endpoint = new DeviceEndpoint(base);
+            endpoints.put(identifier, endpoint);
+            logger.debug("Endpoint of {} is {}", identifier, endpoint);
+            return true;
+        } catch (MalformedURLException e) {
+            logger.warn("Invalid base URL {} of {}: {}", base, identifier, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return endpoint of the device, null if its address isn't known
+     */
+    public DeviceEndpoint get(String identifier) {
+        return identifier != null ? endpoints.get(identifier) : null;
+    }
+}
@@ -1,15 +1,21 @@
 package org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation;
 
+import static org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConstants.*;
+
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.smarthome.binding.drehbinding.eventing.Subscriber;
 import org.eclipse.smarthome.binding.drehbinding.eventing.SubscriptionServiceImpl;
 import org.eclipse.smarthome.binding.drehbinding.internal.REST.RESTIOService;
 import org.eclipse.smarthome.binding.drehbinding.internal.REST.RESTService;
+import org.eclipse.smarthome.binding.drehbinding.internal.exception.UnexpectedResponseCodeException;
+import org.eclipse.smarthome.binding.drehbinding.internal.exception.WrongRespondCodeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,10 +37,16 @@ public class RESTIOServiceImpl implements RESTIOService {
     private static final String POST = "POST";
     private static final String DELETE = "DELETE";
 
+    private static final String TOPIC_SEPARATOR = ",";
+
     private final Logger logger = LoggerFactory.getLogger(RESTIOServiceImpl.class);
 
-    private RESTIOServiceImpl() {
+    private final RESTService restService;
+    private final DeviceEndpointTable endpoints;
 
+    private RESTIOServiceImpl() {
+        restService = RESTServiceImpl.getInstance();
+        endpoints = DeviceEndpointTable.getInstance();
     }
 
     public synchronized static RESTIOServiceImpl getInstance() {
@@ -45,89 +57,236 @@ public class RESTIOServiceImpl implements RESTIOService {
         return instance;
     }
 
+    /**
+     * Forgets the service, it holds the {@link RESTServiceImpl} it was created with
+     */
+    public synchronized static void reset() {
+        instance = null;
+    }
+
     @Override
-    public RESTResponse callService(String serviceIdentifier) throws IOException {
-        return callService(serviceIdentifier, null);
+    public RESTResponse callService(String identifier, String serviceIdentifier) throws IOException {
+        return callService(identifier, serviceIdentifier, null);
     }
 
     @Override
-    public RESTResponse callService(String serviceIdentifier, Map<String, String> params) throws IOException {
-        // url muss iwie aus den Discovery Configs gewonnen werden
-        String urlString = "http://localhost:9090/webapi/functions/" + serviceIdentifier;
-        URL url = null;
-        try {
-            url = new URL(urlString);
-        } catch (MalformedURLException ex) {
-            ex.printStackTrace();
+    public RESTResponse callService(String identifier, String serviceIdentifier, Map<String, String> params)
+            throws IOException {
+        DeviceEndpoint endpoint = endpoints.get(identifier);
+        if (endpoint == null) {
+            throw new IOException("Address of " + identifier + " is unknown");
         }
-        RESTRequest request = new RESTRequest(GET, url, params);
+        RESTRequest request = new RESTRequest(GET, endpoint.getFunctionUrl(serviceIdentifier), params);
 
-        return RESTService.makeRestCall(request);
+        return restService.makeRestCall(request);
     }
 
     @Override
-    public void addSubscription(Subscriber subscriber, String topic, long bootid) {
-        String urlString = "http://192.168.2.109:5000/subscribe";
-        URL url = null;
-        try {
-            url = new URL(urlString);
-        } catch (MalformedURLException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+    public boolean addSubscription(Subscriber subscriber, String topic, long bootid, long ttl) {
+        return addSubscriptions(subscriber, Collections.singletonList(topic), bootid, ttl).isAccepted(topic);
+    }
+
+    @Override
+    public SubscriptionResult addSubscriptions(Subscriber subscriber, Collection<String> topics, long bootid,
+            long ttl) {
+        DeviceEndpoint endpoint = endpointOf(subscriber);
+        if (endpoint == null) {
+            return SubscriptionResult.unanswered(topics);
         }
+
+        Map<String, String> params = subscriptionParams(subscriber, bootid);
+        putTopics(params, topics);
+        params.put("ttl", "" + ttl);
+        RESTRequest request = new RESTRequest(POST, endpoint.getSubscribeUrl(), params);
+
+        return perTopicResults(request, topics);
+    }
+
+    @Override
+    public SubscriptionResult renewSubscriptions(Subscriber subscriber, Collection<String> topics, long bootid,
+            long ttl) {
+        DeviceEndpoint endpoint = endpointOf(subscriber);
+        if (endpoint == null) {
+            return SubscriptionResult.unanswered(topics);
+        }
+
         Map<String, String> params = new HashMap<>();
         params.put("identifier", subscriber.getIdentifier());
-        params.put("topic", topic);
-        params.put("callbackPort", "" + SubscriptionServiceImpl.getInstance().getCallbackPort());
+        params.put("topics", String.join(TOPIC_SEPARATOR, topics));
         params.put("bootid", "" + bootid);
-        RESTRequest request = new RESTRequest(POST, url, params);
+        params.put("ttl", "" + ttl);
+        RESTRequest request = new RESTRequest(POST, endpoint.getRenewUrl(), params);
 
-        RESTResponse response;
-        try {
-            response = RESTService.makeRestCall(request);
-        } catch (IOException e) {
-            logger.error("Eine Exception trat auf!");
-            SubscriptionServiceImpl.getInstance().onFailedRemoteSubscription(subscriber, topic);
-            return;
+        return perTopicResults(request, topics);
+    }
+
+    private void putTopics(Map<String, String> params, Collection<String> topics) {
+        if (topics.size() == 1) {
+            // Auch Devices, die topics noch nicht kennen, verstehen eine einzelne Subscription
+            params.put("topic", topics.iterator().next());
+        } else {
+            params.put("topics", String.join(TOPIC_SEPARATOR, topics));
         }
+    }
 
-        if (response.getResponseCode() == 200 || response.getResponseCode() == 204) {
-            SubscriptionServiceImpl.getInstance().onSuccessfulRemoteSubscription(subscriber, topic);
+    /**
+     * Everything the device needs to send its events, for one topic or many
+     */
+    private Map<String, String> subscriptionParams(Subscriber subscriber, long bootid) {
+        Map<String, String> params = new HashMap<>();
+        // Das Device schickt den Identifier bei jedem Event mit, damit es genau einem Subscriber zugestellt wird
+        params.put("identifier", subscriber.getIdentifier());
+        String group = SubscriptionServiceImpl.getInstance().getMulticastGroup();
+        if (group != null) {
+            /*
+             * Das Device merkt sich nur die Gruppe und sendet jedes Event einmal an sie, egal wie viele openHAB
+             * Instanzen es abonniert haben.
+             */
+            params.put("group", group);
         } else {
-            SubscriptionServiceImpl.getInstance().onFailedRemoteSubscription(subscriber, topic);
+            params.put("callbackPort", "" + SubscriptionServiceImpl.getInstance().getCallbackPort());
         }
+        params.put("bootid", "" + bootid);
+        /*
+         * Das Device darf eine dauerhafte Verbindung aufbauen, muss aber nicht. Ältere Devices ignorieren die
+         * Parameter und verbinden sich weiterhin pro Event.
+         */
+        params.put("connectionMode", CONNECTION_MODE_PERSISTENT);
+        params.put("idleTimeout", "" + SubscriptionServiceImpl.getInstance().getStreamIdleTimeout());
+        /*
+         * Bei udp und multicast sendet das Device jedes Event als Datagramm und zählt die Events in seq hoch. Ohne
+         * den Parameter bleibt es bei tcp.
+         */
+        params.put("transport", SubscriptionServiceImpl.getInstance().getTransport());
+        // Was keiner braucht, schickt das Device gar nicht erst
+        subscriber.getEventFilter().putParams(params);
+        return params;
     }
 
     @Override
-    public void removeSubscription(Subscriber subscriber, String topic, long bootid) {
-        // url muss iwie aus den Discovery Configs gewonnen werden
-        String urlString = "http://192.168.2.109:5000/unsubscribe";
-        URL url = null;
-        try {
-            url = new URL(urlString);
-        } catch (MalformedURLException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+    public boolean removeSubscription(Subscriber subscriber, String topic, long bootid) {
+        DeviceEndpoint endpoint = endpointOf(subscriber);
+        if (endpoint == null) {
+            return false;
         }
+
         Map<String, String> params = new HashMap<>();
         params.put("identifier", subscriber.getIdentifier());
         params.put("topic", topic);
         params.put("bootid", "" + bootid);
-        RESTRequest request = new RESTRequest(DELETE, url, params);
+        RESTRequest request = new RESTRequest(DELETE, endpoint.getUnsubscribeUrl(), params);
+
+        return isSuccessful(request);
+    }
+
+    @Override
+    public Map<String, Boolean> removeSubscriptions(Subscriber subscriber, Collection<String> topics, long bootid) {
+        if (topics.size() == 1) {
+            String topic = topics.iterator().next();
+            return Collections.singletonMap(topic, removeSubscription(subscriber, topic, bootid));
+        }
+
+        DeviceEndpoint endpoint = endpointOf(subscriber);
+        if (endpoint == null) {
+            return SubscriptionResult.unanswered(topics).getAccepted();
+        }
+
+        Map<String, String> params = new HashMap<>();
+        params.put("identifier", subscriber.getIdentifier());
+        params.put("topics", String.join(TOPIC_SEPARATOR, topics));
+        params.put("bootid", "" + bootid);
+        RESTRequest request = new RESTRequest(DELETE, endpoint.getUnsubscribeUrl(), params);
+
+        return perTopicResults(request, topics).getAccepted();
+    }
+
+    /**
+     * The device answers with the topics as JSON list or comma separated, an answer without topics means it holds no
+     * subscription for the subscriber
+     */
+    @Override
+    public Set<String> getSubscriptions(Subscriber subscriber, long bootid) {
+        DeviceEndpoint endpoint = endpointOf(subscriber);
+        if (endpoint == null) {
+            return null;
+        }
+
+        Map<String, String> params = new HashMap<>();
+        params.put("identifier", subscriber.getIdentifier());
+        params.put("bootid", "" + bootid);
+        RESTRequest request = new RESTRequest(GET, endpoint.getSubscriptionsUrl(), params);
 
         RESTResponse response;
         try {
-            response = RESTService.makeRestCall(request);
-        } catch (IOException e) {
-            SubscriptionServiceImpl.getInstance().onFailedRemoteSubscriptionRemoval(subscriber, topic);
-            return;
+            response = restService.makeRestCall(request);
+        } catch (IOException | UnexpectedResponseCodeException | WrongRespondCodeException e) {
+            logger.debug("{} failed: {}", request, e.getMessage());
+            return null;
         }
 
-        if (response.getResponseCode() == 200 || response.getResponseCode() == 204) {
-            SubscriptionServiceImpl.getInstance().onSuccessfulRemoteSubscriptionRemoval(subscriber, topic);
-        } else {
-            SubscriptionServiceImpl.getInstance().onFailedRemoteSubscriptionRemoval(subscriber, topic);
+        Set<String> topics = new HashSet<>();
+        Object listed = response.getParameter() != null ? response.getParameter().get("topics") : null;
+        if (listed instanceof Collection) {
+            for (Object topic : (Collection<?>) listed) {
+                topics.add(String.valueOf(topic));
+            }
+        } else if (listed instanceof String && !((String) listed).isEmpty()) {
+            for (String topic : ((String) listed).split(TOPIC_SEPARATOR)) {
+                topics.add(topic.trim());
+            }
         }
+        return topics;
+    }
+
+    private DeviceEndpoint endpointOf(Subscriber subscriber) {
+        DeviceEndpoint endpoint = endpoints.get(subscriber.getIdentifier());
+        if (endpoint == null) {
+            logger.debug("Address of {} is unknown", subscriber.getIdentifier());
+        }
+
+        return endpoint;
+    }
+
+    /**
+     * The device answers a request for several topics with topic -> true/false. A topic it doesn't mention, or a 204
+     * without body, counts as accepted. If the request as a whole fails, it failed for every topic.
+     *
+     * Devices that grant leases add the ttl in seconds, see {@link SubscriptionResult#getTtl()}.
+     */
+    private SubscriptionResult perTopicResults(RESTRequest request, Collection<String> topics) {
+        RESTResponse response;
+        try {
+            response = restService.makeRestCall(request);
+        } catch (IOException | UnexpectedResponseCodeException | WrongRespondCodeException e) {
+            logger.debug("{} failed: {}", request, e.getMessage());
+            return SubscriptionResult.unanswered(topics);
+        }
+
+        Map<String, Boolean> results = new HashMap<>();
+        Map<String, Object> parameter = response.getParameter();
+        for (String topic : topics) {
+            Object accepted = parameter != null ? parameter.get(topic) : null;
+            results.put(topic, !Boolean.FALSE.equals(accepted));
+        }
+
+        long ttl = SubscriptionResult.NO_LEASE;
+        Object granted = parameter != null ? parameter.get("ttl") : null;
+        if (granted instanceof Number && ((Number) granted).longValue() > 0) {
+            ttl = ((Number) granted).longValue();
+        }
+        return new SubscriptionResult(true, results, ttl);
+    }
+
+    private boolean isSuccessful(RESTRequest request) {
+        RESTResponse response;
+        try {
+            response = restService.makeRestCall(request);
+        } catch (IOException | UnexpectedResponseCodeException | WrongRespondCodeException e) {
+            logger.debug("{} failed: {}", request, e.getMessage());
+            return false;
+        }
+
+        return response.getResponseCode() == 200 || response.getResponseCode() == 204;
     }
 
 }
\ No newline at end of file
@@ -1,20 +1,41 @@
 package org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.smarthome.binding.drehbinding.internal.DrehbindingBindingConfiguration;
 import org.eclipse.smarthome.binding.drehbinding.internal.REST.RESTService;
+import org.eclipse.smarthome.binding.drehbinding.internal.exception.CircuitOpenException;
+import org.eclipse.smarthome.binding.drehbinding.internal.exception.MalformedResponseException;
 import org.eclipse.smarthome.binding.drehbinding.internal.exception.UnexpectedResponseCodeException;
 import org.eclipse.smarthome.binding.drehbinding.internal.exception.WrongRespondCodeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 
 /**
+ * The only REST transport of the binding. Connections are kept alive and reused per host: the JDK keeps idle
+ * connections in its keep-alive cache as long as every response is read completely and its stream is closed. A
+ * connection that is used by another call can't be reused, so the number of concurrent calls per host is limited to
+ * what the keep-alive cache holds (http.maxConnections, 5 by default). Further calls wait for a free connection.
+ *
+ * Every host has a {@link CircuitBreaker}. While it is open, calls to the host fail right away with a
+ * {@link CircuitOpenException} instead of waiting for the connect timeout.
+ *
  * Is ThreadSafe
  *
  * @author Tristan
@@ -24,8 +45,6 @@ import com.google.gson.Gson;
  * Wird als Singleton eingerichtet. Der Service is threadsafe
  * und daher sollte immer auch die selbe Instanz verwendet werden,
  * da es ja auch immer der selbe Service ist.
- *
- * TODO: Quatsche dies mit Peter durch (ist mehr ein Pattern)
  */
 public class RESTServiceImpl implements RESTService {
 
@@ -33,11 +52,44 @@ public class RESTServiceImpl implements RESTService {
 
     private static RESTServiceImpl instance;
 
+    /**
+     * Gson is ThreadSafe, one instance is enough for all responses
+     */
+    private static final Gson GSON = new Gson();
+
+    private static final int DRAIN_BUFFER_SIZE = 512;
+
+    private static volatile int connectTimeout = 5000;
+    private static volatile int readTimeout = 5000;
+    private static volatile int maxConnectionsPerHost = 4;
+    private static volatile int breakerWindow = 10;
+    private static volatile int breakerMinCalls = 5;
+    private static volatile int breakerFailureRate = 50;
+    private static volatile int breakerCooldown = 30000;
+
+    /**
+     * host:port -> permits for concurrent calls
+     */
+    private final ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * host:port -> circuit breaker
+     */
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final List<CircuitBreaker.Listener> breakerListeners = new CopyOnWriteArrayList<>();
+
+    private final CircuitBreaker.Listener breakerListener = (host, state) -> {
+        for (CircuitBreaker.Listener listener : breakerListeners) {
+            listener.stateChanged(host, state);
+        }
+    };
+
     private RESTServiceImpl() {
 
     }
 
-    public static RESTServiceImpl getInstance() {
+    public static synchronized RESTServiceImpl getInstance() {
         if (instance == null) {
             instance = new RESTServiceImpl();
         }
@@ -45,62 +97,170 @@ public class RESTServiceImpl implements RESTService {
         return instance;
     }
 
+    /**
+     * Forgets the service with its circuit breakers and connection limits. Called when the binding stops, so they
+     * are built again with the configuration of the next start.
+     */
+    public static synchronized void reset() {
+        instance = null;
+    }
+
+    /**
+     * Sets the timeouts, the connection limit and the circuit breaker thresholds. Timeouts apply to the next call, the
+     * others to hosts that weren't called yet.
+     *
+     * @param configuration
+     */
+    public static void configure(DrehbindingBindingConfiguration configuration) {
+        connectTimeout = configuration.restConnectTimeout;
+        readTimeout = configuration.restReadTimeout;
+        maxConnectionsPerHost = configuration.restMaxConnectionsPerHost;
+        breakerWindow = configuration.breakerWindow;
+        breakerMinCalls = configuration.breakerMinCalls;
+        breakerFailureRate = configuration.breakerFailureRate;
+        breakerCooldown = configuration.breakerCooldown;
+    }
+
+    /**
+     * @param listener informed when the circuit of any host changes its state
+     */
+    public void addBreakerListener(CircuitBreaker.Listener listener) {
+        breakerListeners.add(listener);
+    }
+
+    public void removeBreakerListener(CircuitBreaker.Listener listener) {
+        breakerListeners.remove(listener);
+    }
+
+    /**
+     * @return state of the circuit of the host, closed if it wasn't called yet
+     */
+    public CircuitBreaker.State getBreakerState(String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
     /**
      *
      * @param request
      * @return RESTResponse which contains the response code of the REST call and all obtained
      *         custom return values.
-     * @throws IOException
-     */
-    /*
-     * TODO: Ggf anstatt null zu returnen eine Exception werfen.
+     * @throws IOException if the device could not be reached, didn't answer in time or no connection to it became
+     *             free within the connect timeout
+     * @throws CircuitOpenException if the circuit of the device is open
      */
     @Override
     public RESTResponse makeRestCall(RESTRequest request) throws IOException {
+        String host = hostKey(request.getUrl());
+        CircuitBreaker breaker = breakers.computeIfAbsent(host, h -> new CircuitBreaker(h, breakerWindow,
+                breakerMinCalls, breakerFailureRate, breakerCooldown, breakerListener));
+        if (!breaker.allowRequest()) {
+            throw new CircuitOpenException(host);
+        }
 
+        Semaphore permits = hosts.computeIfAbsent(host, h -> new Semaphore(maxConnectionsPerHost));
+        try {
+            acquire(permits, request);
+        } catch (IOException e) {
+            // Beim Start warten viele Subscriptions auf eine Verbindung, das sagt nichts über das Device
+            breaker.cancel();
+            throw e;
+        }
+
+        boolean reachable = false;
+        try {
+            RESTResponse response = execute(request);
+            reachable = true;
+            return response;
+        } catch (UnexpectedResponseCodeException | WrongRespondCodeException | MalformedResponseException e) {
+            // Das Device hat geantwortet, nur nicht wie erwartet
+            reachable = true;
+            throw e;
+        } finally {
+            permits.release();
+            breaker.record(reachable);
+        }
+    }
+
+    private void acquire(Semaphore permits, RESTRequest request) throws IOException {
+        try {
+            if (!permits.tryAcquire(connectTimeout, TimeUnit.MILLISECONDS)) {
+                throw new IOException("No free connection to " + request.getUrl().getHost());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + request.getUrl().getHost());
+        }
+    }
+
+    private RESTResponse execute(RESTRequest request) throws IOException {
         HttpURLConnection connection = buildConnection(request);
 
-        RESTResponse response = null;
-        switch (connection.getResponseCode()) {
+        int responseCode;
+        try {
+            responseCode = connection.getResponseCode();
+        } catch (IOException e) {
+            // Die Verbindung ist kaputt und darf nicht wiederverwendet werden
+            connection.disconnect();
+            throw e;
+        }
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("{} -> {}", request, responseCode);
+        }
+
+        switch (responseCode) {
             case 200:
-                StringBuilder responseBodyBuilder = null;
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                responseBodyBuilder = new StringBuilder();
-                String currentLine;
-
-                while ((currentLine = reader.readLine()) != null) {
-                    responseBodyBuilder.append(currentLine);
-                }
-
-                Gson gson = new Gson();
-                response = gson.fromJson(responseBodyBuilder.toString(), RESTResponse.class);
-                if (response == null) {
-                    /*
-                     * Dieser Fall sollte eigentlich nicht auftreten, da es sich sonst um einen
-                     * 204 handelt und nicht um einen 200. Dieser Fall ist nur drinnen, um falsch
-                     * implementierte WebServices abzufangen.
-                     */
-                    throw new WrongRespondCodeException();
-                } else {
-                    response.setResponseCode(connection.getResponseCode());
-                    return response;
-                }
+                return readResponse(connection, responseCode);
 
             case 204:
-                response = new RESTResponse();
-                response.setResponseCode(connection.getResponseCode());
+                closeQuietly(connection.getInputStream());
+                RESTResponse response = new RESTResponse();
+                response.setResponseCode(responseCode);
                 return response;
 
             default:
+                // Auch der Fehlerbody muss gelesen werden, sonst wird die Verbindung nicht wiederverwendet
+                closeQuietly(connection.getErrorStream());
                 throw new UnexpectedResponseCodeException();
         }
+    }
 
+    /**
+     * Parses the body straight from the connection, without building a String first
+     */
+    private RESTResponse readResponse(HttpURLConnection connection, int responseCode) throws IOException {
+        InputStream body = connection.getInputStream();
+        RESTResponse response;
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            response = GSON.fromJson(reader, RESTResponse.class);
+            drain(body);
+        } catch (JsonParseException e) {
+            connection.disconnect();
+            throw new MalformedResponseException(
+                    "Malformed response from " + connection.getURL() + ": " + e.getMessage(), e);
+        }
+
+        if (response == null) {
+            /*
+             * Dieser Fall sollte eigentlich nicht auftreten, da es sich sonst um einen
+             * 204 handelt und nicht um einen 200. Dieser Fall ist nur drinnen, um falsch
+             * implementierte WebServices abzufangen.
+             */
+            throw new WrongRespondCodeException();
+        }
+
+        response.setResponseCode(responseCode);
+        return response;
     }
 
     private HttpURLConnection buildConnection(RESTRequest request) throws IOException {
         HttpURLConnection connection = (HttpURLConnection) request.getUrl().openConnection();
         connection.setRequestMethod(request.getMethod());
-        connection.setConnectTimeout(5000);
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setUseCaches(false);
+        connection.setRequestProperty("Connection", "keep-alive");
 
         if (request.getParams() != null) {
             for (Entry<String, String> param : request.getParams().entrySet()) {
@@ -111,28 +271,34 @@ public class RESTServiceImpl implements RESTService {
         return connection;
     }
 
-    @Override
-    public void GET() {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void PUT() {
-        // TODO Auto-generated method stub
-
+    /**
+     * @return host:port of the URL, the key of the connection limit and the circuit breaker
+     */
+    static String hostKey(URL url) {
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return url.getHost() + ":" + port;
     }
 
-    @Override
-    public void POST() {
-        // TODO Auto-generated method stub
-
+    /**
+     * Reads what is left of the body, so the connection can go back into the keep-alive cache
+     */
+    private static void drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        while (stream.read(buffer) >= 0) {
+            // verwerfen
+        }
     }
 
-    @Override
-    public void DELETE() {
-        // TODO Auto-generated method stub
+    private void closeQuietly(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
 
+        try {
+            drain(stream);
+            stream.close();
+        } catch (IOException e) {
+            logger.trace("Closing response stream failed: {}", e.getMessage());
+        }
     }
-
-}
\ No newline at end of file
+}
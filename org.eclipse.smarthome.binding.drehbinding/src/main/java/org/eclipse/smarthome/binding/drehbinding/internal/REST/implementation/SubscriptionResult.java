@@ -0,0 +1,66 @@
+package org.eclipse.smarthome.binding.drehbinding.internal.REST.implementation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answer of a device to a subscription or renewal request for one or more topics
+ *
+ * @author Tristan
+ *
+ */
+public class SubscriptionResult {
+
+    /**
+     * Lease time of devices that don't grant leases
+     */
+    public static final long NO_LEASE = -1;
+
+    private final boolean answered;
+    private final Map<String, Boolean> accepted;
+    private final long ttl;
+
+    public SubscriptionResult(boolean answered, Map<String, Boolean> accepted, long ttl) {
+        this.answered = answered;
+        this.accepted = accepted;
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return result of a request the device never answered, every topic failed
+     */
+    public static SubscriptionResult unanswered(Collection<String> topics) {
+        Map<String, Boolean> accepted = new HashMap<>();
+        for (String topic : topics) {
+            accepted.put(topic, false);
+        }
+
+        return new SubscriptionResult(false, accepted, NO_LEASE);
+    }
+
+    /**
+     * @return false if the device couldn't be reached or didn't answer properly
+     */
+    public boolean isAnswered() {
+        return answered;
+    }
+
+    /**
+     * @return topic -> true if the device accepted the topic
+     */
+    public Map<String, Boolean> getAccepted() {
+        return accepted;
+    }
+
+    public boolean isAccepted(String topic) {
+        return Boolean.TRUE.equals(accepted.get(topic));
+    }
+
+    /**
+     * @return seconds the accepted subscriptions are valid, {@link #NO_LEASE} if they are valid until removed
+     */
+    public long getTtl() {
+        return ttl;
+    }
+}
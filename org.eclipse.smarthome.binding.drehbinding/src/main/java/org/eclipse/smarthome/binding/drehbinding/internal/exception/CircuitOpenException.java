@@ -0,0 +1,19 @@
+package org.eclipse.smarthome.binding.drehbinding.internal.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling a device whose circuit breaker is open. Is an {@link IOException}, so callers handle it
+ * like an unreachable device.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String errorMessage = "Device is not reachable, calls are suspended: ";
+
+    public CircuitOpenException(String host) {
+        super(errorMessage + host);
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.eclipse.smarthome.binding.drehbinding.internal.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown if the body of an answer is no valid JSON. The device did answer, so it doesn't count against its circuit
+ * breaker.
+ */
+public class MalformedResponseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MalformedResponseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}